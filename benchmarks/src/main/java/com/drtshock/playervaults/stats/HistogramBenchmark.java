@@ -0,0 +1,72 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.drtshock.playervaults.stats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording timings, done for every vault operation, and reading percentiles for /pv stats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistogramBenchmark {
+    private Histogram histogram;
+
+    @Setup
+    public void setup() {
+        this.histogram = new Histogram();
+        for (int i = 0; i < 100_000; i++) {
+            this.histogram.record(ThreadLocalRandom.current().nextLong(50_000_000));
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        this.histogram.record(ThreadLocalRandom.current().nextLong(50_000_000));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        this.histogram.record(ThreadLocalRandom.current().nextLong(50_000_000));
+    }
+
+    @Benchmark
+    public long percentile() {
+        return this.histogram.getPercentile(0.99);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.drtshock.playervaults.util;
+
+import com.drtshock.playervaults.config.file.Config;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Blocked item checks, run for every click and drag in a vault. Uses the default config, which blocks pumpkins.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockedItemRulesBenchmark {
+    private BlockedItemRules rules;
+    private ItemStack allowed;
+    private ItemStack blocked;
+
+    @Setup
+    public void setup() {
+        this.rules = BlockedItemRules.compile(new Config().getItemBlocking(), Logger.getLogger("benchmark"));
+        this.allowed = new ItemStack(Material.DIAMOND, 64);
+        this.blocked = new ItemStack(Material.PUMPKIN, 1);
+    }
+
+    @Benchmark
+    public int checkAllowed() {
+        return this.rules.check(this.allowed);
+    }
+
+    @Benchmark
+    public int checkBlocked() {
+        return this.rules.check(this.blocked);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and loading a holder file the way {@link VaultManager} does: a save copies the cached file, changes one vault
+ * and writes it rendered by the holder's {@link HolderDocument} through {@link StorageBuffers}, and a load reads it
+ * back through the same buffers. The backups, stats and mailbox around them need a running plugin, so they aren't
+ * covered here, use {@code /pvconsole bench} for those.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HolderFileBenchmark {
+    @Param({"6", "30"})
+    public int vaults;
+
+    private Path file;
+    private YamlConfiguration cached;
+    private HolderDocument document;
+    private String[] stored;
+    private int saves;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(54);
+        // Every third vault full of shulker boxes and books, the rest plain stacks
+        this.stored = new String[this.vaults];
+        for (int number = 0; number < this.vaults; number++) {
+            byte[][] items = new byte[54][];
+            for (int slot = 0; slot < items.length; slot++) {
+                items[slot] = new byte[number % 3 == 0 ? 2048 + random.nextInt(4096) : 40 + random.nextInt(40)];
+                random.nextBytes(items[slot]);
+            }
+            this.stored[number] = CardboardBoxSerialization.frame(items);
+        }
+        this.cached = new YamlConfiguration();
+        for (int number = 1; number <= this.vaults; number++) {
+            this.cached.set("vault" + number, this.stored[number - 1]);
+            this.cached.set("version.vault" + number, 1L);
+        }
+        this.file = Files.createTempFile("holder", ".yml");
+        this.document = new HolderDocument();
+        StorageBuffers.write(this.file, this.document.render(this.cached));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    // One vault saved, as when a player closes it
+    @Benchmark
+    public long save() throws IOException {
+        int number = 1 + this.saves++ % this.vaults;
+        YamlConfiguration yaml = VaultManager.copyOf(this.cached);
+        yaml.set("vault" + number, this.stored[(number + this.saves) % this.vaults]);
+        yaml.set("version.vault" + number, yaml.getLong("version.vault" + number) + 1);
+        this.cached = yaml;
+        return StorageBuffers.write(this.file, this.document.render(yaml));
+    }
+
+    // The same save dumping the whole document, as before holder documents
+    @Benchmark
+    public long saveWhole() throws IOException {
+        int number = 1 + this.saves++ % this.vaults;
+        YamlConfiguration yaml = VaultManager.copyOf(this.cached);
+        yaml.set("vault" + number, this.stored[(number + this.saves) % this.vaults]);
+        yaml.set("version.vault" + number, yaml.getLong("version.vault" + number) + 1);
+        this.cached = yaml;
+        return StorageBuffers.write(this.file, yaml.saveToString());
+    }
+
+    @Benchmark
+    public YamlConfiguration load() throws IOException, InvalidConfigurationException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.loadFromString(StorageBuffers.read(this.file));
+        return yaml;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.EOFException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Framing and base64 encoding of stored vaults, with item payloads sized like real ones. Serializing the items
+ * themselves needs a running server, so it isn't covered here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    /**
+     * Vault shapes, by the size of each of the 54 slots' payloads.
+     */
+    public enum Kind {
+        // Empty slots still serialize to a few bytes
+        EMPTY(8, 8),
+        // Plain stacks of materials
+        STACKED(40, 80),
+        // Shulker boxes full of items and written books
+        NBT_HEAVY(2048, 16384);
+
+        private final int min;
+        private final int max;
+
+        Kind(int min, int max) {
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    @Param({"EMPTY", "STACKED", "NBT_HEAVY"})
+    public Kind kind;
+
+    private byte[][] items;
+    private String stored;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(54);
+        this.items = new byte[54][];
+        for (int i = 0; i < this.items.length; i++) {
+            this.items[i] = new byte[this.kind.min + random.nextInt(this.kind.max - this.kind.min + 1)];
+            random.nextBytes(this.items[i]);
+        }
+        this.stored = CardboardBoxSerialization.frame(this.items);
+    }
+
+    @Benchmark
+    public String encode() {
+        return CardboardBoxSerialization.frame(this.items);
+    }
+
+    @Benchmark
+    public byte[][] decode() throws EOFException {
+        return CardboardBoxSerialization.unframe(this.stored);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summarizing a vault on save, and reading summaries back for /pv list and the selector.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VaultSummaryBenchmark {
+    private static final Material[] MATERIALS = {Material.STONE, Material.DIAMOND, Material.OAK_LOG, Material.IRON_INGOT,
+            Material.REDSTONE, Material.COBBLESTONE, Material.GOLD_INGOT, Material.EMERALD};
+
+    private ItemStack[] contents;
+    private String serialized;
+    private String encoded;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(54);
+        this.contents = new ItemStack[54];
+        for (int i = 0; i < this.contents.length; i++) {
+            if (random.nextInt(4) != 0) {
+                this.contents[i] = new ItemStack(MATERIALS[random.nextInt(MATERIALS.length)], 1 + random.nextInt(64));
+            }
+        }
+        this.serialized = "x".repeat(4096);
+        this.encoded = VaultSummary.of(this.contents, this.serialized, 0).encode();
+    }
+
+    @Benchmark
+    public VaultSummary summarize() {
+        return VaultSummary.of(this.contents, this.serialized, 0);
+    }
+
+    @Benchmark
+    public String encode() {
+        return VaultSummary.of(this.contents, this.serialized, 0).encode();
+    }
+
+    @Benchmark
+    public VaultSummary decode() {
+        return VaultSummary.decode(this.encoded);
+    }
+}
@@ -18,11 +18,14 @@
 
 package com.drtshock.playervaults;
 
+import com.drtshock.playervaults.tasks.JobScheduler;
 import com.drtshock.playervaults.vaultmanagement.CardboardBoxSerialization;
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.util.io.BukkitObjectInputStream;
 import org.json.simple.JSONArray;
@@ -30,18 +33,34 @@ import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
 import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-class Conversion {
+public class Conversion {
     /**
      * Fancy JSON serialization mostly by evilmidget38.
      *
@@ -144,14 +163,53 @@ class Conversion {
         }
     }
 
+    private static final String MANIFEST = ".migration";
+
+    // File name without .yml - the old file while waiting, or a future completed once it has been written
+    private static final ConcurrentHashMap<String, Object> states = new ConcurrentHashMap<>();
+
+    private static PlayerVaults plugin;
+    private static File oldDir;
+    private static boolean recent;
+    private static BufferedWriter manifest;
+    private static final AtomicInteger vaults = new AtomicInteger();
+    private static final AtomicInteger failed = new AtomicInteger();
+    // Holders whose new file couldn't be written, they stay off the manifest and are retried on the next start
+    private static final Set<String> unsaved = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts migrating vaults from the legacy storage folders, if there are any left to migrate. The migration runs in
+     * the background; holders that are needed before their turn are migrated on demand by {@link #awaitHolder(String)}.
+     * Players already online, as after a reload, are migrated first, and players joining later are migrated while they
+     * log in, so their own vaults are never migrated on the main thread.
+     * <p>
+     * Completed files are listed in a manifest in the new vault folder, so a migration interrupted by a restart picks up
+     * where it stopped.
+     */
     static void convert(PlayerVaults plugin) {
         Logger logger = plugin.getLogger();
+        Conversion.plugin = plugin;
+        reset();
 
         File newDir = plugin.getVaultData();
         File oldVaults = plugin.getDataFolder().toPath().resolve("base64vaults").toFile();
         File reallyOldVaults = plugin.getDataFolder().toPath().resolve("uuidvaults").toFile();
+        File manifestFile = new File(newDir, MANIFEST);
 
-        if (newDir.exists()) {
+        Set<String> done = new HashSet<>();
+        if (manifestFile.exists()) {
+            try {
+                List<String> lines = Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8);
+                recent = !lines.isEmpty() && lines.getFirst().equals("base64vaults");
+                done.addAll(lines.subList(Math.min(1, lines.size()), lines.size()));
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to read migration manifest, not resuming migration", e);
+                return;
+            }
+            oldDir = recent ? oldVaults : reallyOldVaults;
+            logger.info("********** Resuming data storage conversion **********");
+            logger.info(done.size() + " files were already converted.");
+        } else if (newDir.exists()) {
             plugin.getDataFolder().toPath().resolve("oldVaultsData").toFile().mkdirs();
             if (oldVaults.exists()) {
                 try {
@@ -168,86 +226,227 @@ class Conversion {
                 }
             }
             return;
+        } else {
+            if (oldVaults.exists() && oldVaults.isDirectory()) {
+                logger.info("********** Starting data storage conversion **********");
+                logger.info("This might take a while and might say \"unable to resolve\"");
+                logger.info(oldVaults.toString() + " will remain as a backup.");
+                recent = true;
+                oldDir = oldVaults;
+            } else if (reallyOldVaults.exists() && reallyOldVaults.isDirectory()) {
+                logger.info("********** Starting data storage conversion **********");
+                logger.info("This might take a while and might say \"unable to resolve\"");
+                logger.info(reallyOldVaults.toString() + " will remain as a backup.");
+                recent = false;
+                oldDir = reallyOldVaults;
+            } else {
+                newDir.mkdirs();
+                logger.info("No old vaults found to convert to new format. :)");
+                return;
+            }
+            newDir.mkdirs();
         }
 
-        newDir.mkdirs();
-
-        File oldDir;
-        boolean recent;
-        if (oldVaults.exists() && oldVaults.isDirectory()) {
-            logger.info("********** Starting data storage conversion **********");
-            logger.info("This might take a while and might say \"unable to resolve\"");
-            logger.info(oldVaults.toString() + " will remain as a backup.");
-            recent = true;
-            oldDir = oldVaults;
-        } else if (reallyOldVaults.exists() && reallyOldVaults.isDirectory()) {
-            logger.info("********** Starting data storage conversion **********");
-            logger.info("This might take a while and might say \"unable to resolve\"");
-            logger.info(reallyOldVaults.toString() + " will remain as a backup.");
-            recent = false;
-            oldDir = reallyOldVaults;
-        } else {
-            logger.info("No old vaults found to convert to new format. :)");
+        try {
+            boolean fresh = !manifestFile.exists();
+            manifest = Files.newBufferedWriter(manifestFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (fresh) {
+                manifest.write(oldDir.getName());
+                manifest.newLine();
+                manifest.flush();
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to write migration manifest, not converting old vaults", e);
             return;
         }
 
-        int players = 0;
-        int vaults = 0;
-        int failed = 0;
-        for (File file : oldDir.listFiles()) {
+        File[] files = oldDir.listFiles();
+        for (File file : files != null ? files : new File[0]) {
             if (file.isDirectory() || !file.getName().endsWith(".yml")) {
                 continue; // backups folder.
             }
+            String name = file.getName().substring(0, file.getName().length() - 4);
+            if (!done.contains(name)) {
+                states.put(name, file);
+            }
+        }
+        if (states.isEmpty()) {
+            finish();
+            return;
+        }
+
+        logger.info(states.size() + " files will be converted in the background. Vaults are converted early when needed.");
+        plugin.getJobs().submit("migration", JobScheduler.Priority.MAINTENANCE, job -> {
+            ExecutorService pool = job.newPool("Migration");
+            long start = System.currentTimeMillis();
+            AtomicInteger remaining = new AtomicInteger(states.size());
+            List<String> order = new ArrayList<>(states.keySet());
+            Set<String> online = new HashSet<>();
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                online.add(player.getUniqueId().toString());
+            }
+            order.sort((a, b) -> Boolean.compare(online.contains(b), online.contains(a)));
+            for (String name : order) {
+                pool.execute(() -> {
+                    try {
+                        job.checkpoint();
+                        awaitHolder(name);
+                    } catch (CancellationException e) {
+                        // Whatever is left is migrated on demand, or on the next start
+                        return;
+                    }
+                    job.setProgress(remaining.get() + " files left");
+                    if (remaining.decrementAndGet() == 0) {
+                        finish();
+                        PlayerVaults.debug("migration", start);
+                    }
+                });
+            }
+            pool.shutdown();
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Keep waiting, the job stays listed until every file is done
+            }
+        });
+    }
 
-            FileConfiguration uuidFile = YamlConfiguration.loadConfiguration(file);
-            String stringUUID = file.getName().replace(".yml", "");
+    /**
+     * Gets the holders whose legacy file hasn't been migrated yet. They have no file in the new vault folder until it
+     * is, so jobs going over every holder add these to the ones they find there.
+     *
+     * @return file names of the holders, without extension
+     */
+    public static Set<String> getPendingHolders() {
+        return Collections.unmodifiableSet(states.keySet());
+    }
 
-            for (String key : uuidFile.getKeys(false)) {
-                if (!key.startsWith("vault")) {
-                    continue;
-                }
+    /**
+     * Makes sure a holder's legacy file, if any, has been migrated before its new file is used. Returns immediately
+     * when no migration is running.
+     * <p>
+     * Online players are migrated before they join, so this only migrates on the main thread for an offline holder
+     * looked up before the background job reached them, which is logged.
+     *
+     * @param holder file name of the holder, without extension
+     */
+    public static void awaitHolder(String holder) {
+        if (states.isEmpty() || holder == null) {
+            return;
+        }
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        File[] claimed = new File[1];
+        Object state = states.compute(holder, (key, value) -> {
+            if (value instanceof File file) {
+                claimed[0] = file;
+                return mine;
+            }
+            return value;
+        });
+        if (claimed[0] != null) {
+            if (Bukkit.isPrimaryThread()) {
+                plugin.getLogger().warning("Converting the vaults of " + holder + " on the main thread, as they were needed before the background conversion reached them");
+            }
+            try {
+                migrate(claimed[0], holder);
+            } finally {
+                states.remove(holder);
+                mine.complete(null);
+            }
+        } else if (state instanceof CompletableFuture<?> future) {
+            future.join();
+        }
+    }
 
-                int vaultNumber = Integer.parseInt(key.replace("vault", ""));
+    private static void migrate(File file, String stringUUID) {
+        Logger logger = plugin.getLogger();
+        FileConfiguration uuidFile = YamlConfiguration.loadConfiguration(file);
 
-                try {
+        for (String key : uuidFile.getKeys(false)) {
+            if (!key.startsWith("vault")) {
+                continue;
+            }
+
+            int vaultNumber = Integer.parseInt(key.replace("vault", ""));
+
+            try {
 
-                    ItemStack[] contents;
-                    if (recent) {
-                        String data = uuidFile.getString(key);
-                        ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64Coder.decodeLines(data));
-                        BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream);
-                        contents = new ItemStack[dataInput.readInt()];
-                        // Read the serialized inventory
-                        for (int i = 0; i < contents.length; i++) {
-                            contents[i] = (ItemStack) dataInput.readObject();
-                        }
-                        dataInput.close();
-                    } else {
-                        ConfigurationSection section = uuidFile.getConfigurationSection(key);
-                        List<String> data = new ArrayList<>();
-                        for (String s : section.getKeys(false)) {
-                            String value = section.getString(s);
-                            data.add(value);
-                        }
-                        contents = OldestSerialization.getItems(data);
+                ItemStack[] contents;
+                if (recent) {
+                    String data = uuidFile.getString(key);
+                    ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64Coder.decodeLines(data));
+                    BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream);
+                    contents = new ItemStack[dataInput.readInt()];
+                    // Read the serialized inventory
+                    for (int i = 0; i < contents.length; i++) {
+                        contents[i] = (ItemStack) dataInput.readObject();
+                    }
+                    dataInput.close();
+                } else {
+                    ConfigurationSection section = uuidFile.getConfigurationSection(key);
+                    List<String> data = new ArrayList<>();
+                    for (String s : section.getKeys(false)) {
+                        String value = section.getString(s);
+                        data.add(value);
                     }
-                    String newData = Base64Coder.encodeLines(CardboardBoxSerialization.writeInventory(contents));
-                    uuidFile.set(key, newData);
-                    vaults++;
-                } catch (Exception e) {
-                    logger.severe("Failed to parse vault " + vaultNumber + " for " + stringUUID);
-                    failed++;
+                    contents = OldestSerialization.getItems(data);
                 }
+                String newData = Base64Coder.encodeLines(CardboardBoxSerialization.writeInventory(contents));
+                uuidFile.set(key, newData);
+                vaults.incrementAndGet();
+            } catch (Exception e) {
+                logger.severe("Failed to parse vault " + vaultNumber + " for " + stringUUID);
+                failed.incrementAndGet();
             }
+        }
+        try {
+            // Written next to the target and moved in, so a crash never leaves half a file behind
+            Path target = plugin.getVaultData().toPath().resolve(file.getName());
+            Path temp = target.resolveSibling(file.getName() + ".tmp");
+            Files.writeString(temp, uuidFile.saveToString(), StandardCharsets.UTF_8);
             try {
-                uuidFile.save(newDir.toPath().resolve(file.getName()).toFile());
-            } catch (IOException e) {
-                logger.severe("Failed to save new file " + file.getName());
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            synchronized (Conversion.class) {
+                manifest.write(stringUUID);
+                manifest.newLine();
+                manifest.flush();
             }
+        } catch (IOException e) {
+            unsaved.add(stringUUID);
+            logger.log(Level.SEVERE, "Failed to save new file " + file.getName(), e);
+        }
+    }
 
-            players++;
+    private static synchronized void finish() {
+        try {
+            manifest.close();
+            manifest = null;
+            if (unsaved.isEmpty()) {
+                Files.deleteIfExists(plugin.getVaultData().toPath().resolve(MANIFEST));
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to remove migration manifest", e);
+        }
+        plugin.getLogger().info(String.format("Converted %d vaults to new storage. %d failed to convert", vaults.get(), failed.get()));
+        if (!unsaved.isEmpty()) {
+            plugin.getLogger().severe(unsaved.size() + " files could not be saved and will be converted again on the next start: " + String.join(", ", unsaved));
         }
+    }
 
-        logger.info(String.format("Converted %d vaults for %d players to new storage. %d failed to convert", vaults, players, failed));
+    // Leftovers of a migration from before a reload would otherwise be mistaken for work of this one
+    private static synchronized void reset() {
+        if (manifest != null) {
+            try {
+                manifest.close();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to close migration manifest", e);
+            }
+            manifest = null;
+        }
+        states.clear();
+        unsaved.clear();
+        vaults.set(0);
+        failed.set(0);
     }
 }
@@ -21,7 +21,12 @@ package com.drtshock.playervaults;
 import com.drtshock.playervaults.commands.ConsoleCommand;
 import com.drtshock.playervaults.commands.ConvertCommand;
 import com.drtshock.playervaults.commands.DeleteCommand;
+import com.drtshock.playervaults.commands.ExportCommand;
 import com.drtshock.playervaults.commands.HelpMeCommand;
+import com.drtshock.playervaults.commands.ImportCommand;
+import com.drtshock.playervaults.commands.JobsCommand;
+import com.drtshock.playervaults.commands.MutateCommand;
+import com.drtshock.playervaults.commands.SearchCommand;
 import com.drtshock.playervaults.commands.SignCommand;
 import com.drtshock.playervaults.commands.SignSetInfo;
 import com.drtshock.playervaults.commands.VaultCommand;
@@ -32,10 +37,17 @@ import com.drtshock.playervaults.listeners.Listeners;
 import com.drtshock.playervaults.listeners.SignListener;
 import com.drtshock.playervaults.listeners.VaultPreloadListener;
 import com.drtshock.playervaults.placeholder.Papi;
+import com.drtshock.playervaults.placeholder.PlaceholderCache;
+import com.drtshock.playervaults.stats.AccessTrace;
+import com.drtshock.playervaults.stats.StatsExporter;
 import com.drtshock.playervaults.tasks.Cleanup;
+import com.drtshock.playervaults.tasks.JobScheduler;
+import com.drtshock.playervaults.util.BlockedItemRules;
 import com.drtshock.playervaults.util.ComponentDispatcher;
 import com.drtshock.playervaults.util.Permission;
 import com.drtshock.playervaults.vaultmanagement.EconomyOperations;
+import com.drtshock.playervaults.vaultmanagement.ItemIndex;
+import com.drtshock.playervaults.vaultmanagement.ShutdownFlusher;
 import com.drtshock.playervaults.vaultmanagement.VaultManager;
 import com.drtshock.playervaults.vaultmanagement.VaultViewInfo;
 import com.google.common.collect.Sets;
@@ -50,7 +62,6 @@ import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.Registry;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.InvalidConfigurationException;
@@ -59,7 +70,6 @@ import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 import sun.misc.Unsafe;
@@ -82,7 +92,6 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -105,10 +114,12 @@ public class PlayerVaults extends JavaPlugin {
     private final ConcurrentHashMap<String, VaultViewInfo> inVault = new ConcurrentHashMap<>();
     // VaultViewInfo - Inventory
     private final ConcurrentHashMap<String, Inventory> openInventories = new ConcurrentHashMap<>();
-    private final Set<Material> blockedMats = Sets.newConcurrentHashSet();
-    private final Set<Enchantment> blockedEnchs = Sets.newConcurrentHashSet();
-    private boolean blockWithModelData = false;
-    private boolean blockWithoutModelData = false;
+    // Vault number - rendered title
+    private final ConcurrentHashMap<String, String> vaultTitles = new ConcurrentHashMap<>();
+    private volatile BlockedItemRules blockedItemRules = BlockedItemRules.NONE;
+    private ItemIndex itemIndex;
+    private JobScheduler jobs;
+    private StatsExporter statsExporter;
     private boolean useVault;
     private YamlConfiguration signs;
     private File signsFile;
@@ -170,8 +181,12 @@ public class PlayerVaults extends JavaPlugin {
         debug("config", time);
         time = System.currentTimeMillis();
         vaultData = new File(this.getDataFolder(), "newvaults");
+        this.jobs = new JobScheduler(this);
+        this.jobs.start();
         Conversion.convert(this);
         new VaultManager(this);
+        this.itemIndex = new ItemIndex(this);
+        PlayerVaults.scheduler().runAsync(task -> this.itemIndex.load());
         debug("conversion", time);
         time = System.currentTimeMillis();
         debug("uuidvaultmanager", time);
@@ -193,6 +208,11 @@ public class PlayerVaults extends JavaPlugin {
         getCommand("pvsign").setExecutor(new SignCommand(this));
         getCommand("pvhelpme").setExecutor(new HelpMeCommand(this));
         getCommand("pvconsole").setExecutor(new ConsoleCommand(this));
+        getCommand("pvexport").setExecutor(new ExportCommand(this));
+        getCommand("pvimport").setExecutor(new ImportCommand(this));
+        getCommand("pvsearch").setExecutor(new SearchCommand(this));
+        getCommand("pvmutate").setExecutor(new MutateCommand(this));
+        getCommand("pvjobs").setExecutor(new JobsCommand(this));
         update.meow = this.getClass().getDeclaredMethods().length;
         debug("registered commands", time);
         time = System.currentTimeMillis();
@@ -201,7 +221,7 @@ public class PlayerVaults extends JavaPlugin {
 
         if (getConf().getPurge().isEnabled()) {
             final int days = getConf().getPurge().getDaysSinceLastEdit();
-            PlayerVaults.scheduler().runLaterAsync(new Cleanup(days), 1L);
+            this.jobs.submit("purge", JobScheduler.Priority.MAINTENANCE, new Cleanup(days));
         }
 
         PlayerVaults.scheduler().runTimer(() -> {
@@ -210,6 +230,12 @@ public class PlayerVaults extends JavaPlugin {
             }
         }, 20, 20);
 
+        PlayerVaults.scheduler().runTimerAsync(task -> this.itemIndex.save(), 20 * 60 * 10, 20 * 60 * 10);
+
+        this.statsExporter = new StatsExporter(this);
+        this.statsExporter.registerMBeans();
+        PlayerVaults.scheduler().runTimerAsync(task -> this.statsExporter.writePrometheus(), 20 * 60, 20 * 60);
+
         this.metrics = new Metrics(this, 6905);
         Plugin vault = getServer().getPluginManager().getPlugin("Vault");
         this.metricsDrillPie("vault", () -> this.metricsPluginInfo(vault));
@@ -270,7 +296,7 @@ public class PlayerVaults extends JavaPlugin {
             Map<String, Map<String, Integer>> map = new HashMap<>();
             Map<String, Integer> entry = new HashMap<>();
             if (getConf().getItemBlocking().isEnabled()) {
-                for (Material material : blockedMats) {
+                for (Material material : blockedItemRules.getMaterials()) {
                     entry.put(material.toString(), 1);
                 }
             }
@@ -300,7 +326,7 @@ public class PlayerVaults extends JavaPlugin {
         }
 
         if (Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) {
-            new Papi(this.getDescription().getVersion()).register();
+            new Papi(this.getDescription().getVersion(), new PlaceholderCache()).register();
             this.getLogger().info("Adding placeholders for PlaceholderAPI!");
         }
 
@@ -370,17 +396,30 @@ public class PlayerVaults extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (this.jobs != null) {
+            this.jobs.shutdown();
+        }
+        if (VaultManager.getInstance() != null) {
+            int timeout = this.getConf().getStorage().getShutdownFlushTimeout();
+            new ShutdownFlusher(this, timeout).flush();
+            if (!VaultManager.getInstance().awaitWrites(timeout)) {
+                this.getLogger().severe("Some vault saves were not written within " + timeout + " seconds of shutdown!");
+            }
+        }
+        if (this.itemIndex != null) {
+            this.itemIndex.save();
+        }
+        if (this.statsExporter != null) {
+            this.statsExporter.unregisterMBeans();
+        }
+        try {
+            AccessTrace.stop();
+        } catch (IOException e) {
+            this.getLogger().log(Level.WARNING, "Could not finish access trace", e);
+        }
+
         for (Player player : Bukkit.getOnlinePlayers()) {
             if (this.inVault.containsKey(player.getUniqueId().toString())) {
-                Inventory inventory = player.getOpenInventory().getTopInventory();
-                if (inventory.getViewers().size() == 1) {
-                    VaultViewInfo info = this.inVault.get(player.getUniqueId().toString());
-                    VaultManager.getInstance().saveVault(inventory, info.getVaultName(), info.getNumber());
-                    this.openInventories.remove(info.toString());
-                    // try this to make sure that they can't make further edits if the process hangs.
-                    PlayerVaults.scheduler().runAtEntity(player, task -> player.closeInventory());
-                }
-
                 this.inVault.remove(player.getUniqueId().toString());
                 debug("Closing vault for " + player.getName());
                 PlayerVaults.scheduler().runAtEntity(player, task -> player.closeInventory());
@@ -421,45 +460,7 @@ public class PlayerVaults extends JavaPlugin {
             this.getLogger().log(Level.SEVERE, "Could not load config.", e);
         }
 
-        // Clear just in case this is a reload.
-        blockedMats.clear();
-        blockedEnchs.clear();
-        this.blockWithModelData = false;
-        this.blockWithoutModelData = false;
-        if (getConf().getItemBlocking().isEnabled()) {
-            for (String s : getConf().getItemBlocking().getList()) {
-                if (s.equalsIgnoreCase("BLOCK_ALL_WITH_CUSTOM_MODEL_DATA")) {
-                    this.blockWithModelData = true;
-                }
-                if (s.equalsIgnoreCase("BLOCK_ALL_WITHOUT_CUSTOM_MODEL_DATA")) {
-                    this.blockWithoutModelData = true;
-                }
-                Material mat = Material.matchMaterial(s);
-                if (mat != null) {
-                    blockedMats.add(mat);
-                    getLogger().log(Level.INFO, "Added {0} to list of blocked materials.", mat.name());
-                }
-            }
-            boolean badEnch = false;
-            for (String s : getConf().getItemBlocking().getEnchantmentsBlocked()) {
-                Enchantment ench = Registry.ENCHANTMENT.match(s);
-                if (ench != null) {
-                    blockedEnchs.add(ench);
-                } else {
-                    badEnch = true;
-                    this.getLogger().warning("Invalid enchantment in config: " + s);
-                }
-            }
-            if (badEnch) {
-                this.getLogger().info("Valid enchantent options: " + Registry.ENCHANTMENT.stream().map(e -> e.getKey().toString()).collect(Collectors.joining(", ")));
-            }
-        }
-        try {
-            ItemMeta.class.getMethod("hasCustomModelData");
-        } catch (NoSuchMethodException e) {
-            this.blockWithModelData = false;
-            this.blockWithoutModelData = false;
-        }
+        this.blockedItemRules = BlockedItemRules.compile(getConf().getItemBlocking(), this.getLogger());
 
         File lang = new File(this.getDataFolder(), "lang");
         if (lang.exists()) {
@@ -486,6 +487,7 @@ public class PlayerVaults extends JavaPlugin {
             this.getLogger().log(Level.SEVERE, "Could not load lang.", e);
         }
         this.translation.cleanupMiniMessup();
+        this.vaultTitles.clear();
     }
 
     public Config getConf() {
@@ -615,22 +617,32 @@ public class PlayerVaults extends JavaPlugin {
         return offlinePlayer != null ? offlinePlayer.getName() : potentialUUID;
     }
 
+    public ItemIndex getItemIndex() {
+        return this.itemIndex;
+    }
+
+    public JobScheduler getJobs() {
+        return this.jobs;
+    }
+
+    public BlockedItemRules getBlockedItemRules() {
+        return this.blockedItemRules;
+    }
+
     public boolean isBlockedMaterial(Material mat) {
-        return blockedMats.contains(mat);
+        return this.blockedItemRules.isBlocked(mat);
     }
 
     public boolean isBlockWithModelData() {
-        return this.blockWithModelData;
+        return this.blockedItemRules.isWithModelData();
     }
 
     public boolean isBlockWithoutModelData() {
-        return this.blockWithoutModelData;
+        return this.blockedItemRules.isWithoutModelData();
     }
 
     public Set<Enchantment> isEnchantmentBlocked(ItemStack item) {
-        Set<Enchantment> enchantments = new HashSet<>(item.getEnchantments().keySet());
-        enchantments.retainAll(this.blockedEnchs);
-        return enchantments;
+        return this.blockedItemRules.getBlockedEnchantments(item);
     }
 
     /**
@@ -668,7 +680,7 @@ public class PlayerVaults extends JavaPlugin {
     }
 
     public String getVaultTitle(String id) {
-        return this.translation.vaultTitle().with("vault", id).getLegacy();
+        return this.vaultTitles.computeIfAbsent(id, key -> this.translation.vaultTitle().with("vault", key).getLegacy());
     }
 
     public String getExceptions() {
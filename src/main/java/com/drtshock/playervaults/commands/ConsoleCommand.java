@@ -19,6 +19,10 @@
 package com.drtshock.playervaults.commands;
 
 import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.stats.AccessTrace;
+import com.drtshock.playervaults.tasks.Benchmark;
+import com.drtshock.playervaults.tasks.LoadHarness;
+import com.drtshock.playervaults.tasks.SampleItems;
 import com.drtshock.playervaults.vaultmanagement.VaultOperations;
 import com.drtshock.playervaults.vaultmanagement.VaultViewInfo;
 import org.bukkit.Bukkit;
@@ -29,6 +33,11 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.entity.Player;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.logging.Level;
+
 public class ConsoleCommand implements CommandExecutor {
     private final PlayerVaults plugin;
 
@@ -48,9 +57,110 @@ public class ConsoleCommand implements CommandExecutor {
 
         if (args.length == 0) {
             sender.sendMessage("/" + label + " openforplayer <player> <owner> <vaultid>");
+            sender.sendMessage("/" + label + " bench [iterations]");
+            sender.sendMessage("/" + label + " generate <holders> <vaults> [mix] [seed]");
+            sender.sendMessage("/" + label + " trace <start|stop>");
+            sender.sendMessage("/" + label + " replay <trace file> [threads] [speed]");
             return true;
         } else {
-            if (args[0].equals("openforplayer")) {
+            if (args[0].equals("bench")) {
+                int iterations = 1000;
+                if (args.length > 1) {
+                    try {
+                        iterations = Integer.parseInt(args[1]);
+                    } catch (NumberFormatException e) {
+                        sender.sendMessage("NOT NUMBER");
+                        return true;
+                    }
+                }
+                Benchmark benchmark = new Benchmark(this.plugin, iterations);
+                sender.sendMessage("Running benchmarks in the background...");
+                PlayerVaults.scheduler().runAsync(task -> {
+                    try {
+                        Path results = benchmark.run(result -> sender.sendMessage(result.toString()));
+                        sender.sendMessage("Results written to " + this.plugin.getDataFolder().toPath().relativize(results));
+                    } catch (Exception e) {
+                        this.plugin.getLogger().log(Level.SEVERE, "Benchmark failed", e);
+                        sender.sendMessage("Benchmark failed: " + e.getMessage());
+                    }
+                });
+            } else if (args[0].equals("generate")) {
+                if (args.length < 3) {
+                    sender.sendMessage("/" + label + " generate <holders> <vaults> [mix] [seed]");
+                    return true;
+                }
+                int holders;
+                int vaults;
+                long seed;
+                Map<SampleItems.Kind, Integer> mix;
+                try {
+                    holders = Integer.parseInt(args[1]);
+                    vaults = Integer.parseInt(args[2]);
+                    mix = LoadHarness.parseMix(args.length > 3 ? args[3] : "empty=10,stacked=70,nbt_heavy=20");
+                    seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+                } catch (IllegalArgumentException e) {
+                    sender.sendMessage("INVALID: " + e.getMessage());
+                    return true;
+                }
+                LoadHarness harness = new LoadHarness(this.plugin);
+                sender.sendMessage("Generating " + holders + " holders with " + vaults + " vaults each in the background...");
+                PlayerVaults.scheduler().runAsync(task -> {
+                    try {
+                        int written = harness.generate(holders, vaults, mix, seed, sender::sendMessage);
+                        sender.sendMessage("Generated " + written + " vaults in " + this.plugin.getDataFolder().toPath().relativize(harness.getFolder()));
+                    } catch (Exception e) {
+                        this.plugin.getLogger().log(Level.SEVERE, "Generating load test data failed", e);
+                        sender.sendMessage("Generating failed: " + e.getMessage());
+                    }
+                });
+            } else if (args[0].equals("trace")) {
+                try {
+                    if (args.length > 1 && args[1].equals("start")) {
+                        Path file = this.plugin.getDataFolder().toPath().resolve("traces").resolve("trace-" + System.currentTimeMillis() + ".pvt");
+                        AccessTrace.start(file);
+                        sender.sendMessage("Recording vault accesses to " + file.getFileName());
+                    } else if (args.length > 1 && args[1].equals("stop")) {
+                        AccessTrace.Result result = AccessTrace.stop();
+                        sender.sendMessage(result == null ? "Not recording." : "Recorded " + result.records() + " vault accesses"
+                                + (result.dropped() > 0 ? ", " + result.dropped() + " dropped as the writer fell behind." : "."));
+                    } else {
+                        sender.sendMessage("/" + label + " trace <start|stop>");
+                    }
+                } catch (Exception e) {
+                    sender.sendMessage("FAILED: " + e.getMessage());
+                }
+            } else if (args[0].equals("replay")) {
+                if (args.length < 2) {
+                    sender.sendMessage("/" + label + " replay <trace file> [threads] [speed]");
+                    return true;
+                }
+                Path traces = this.plugin.getDataFolder().toPath().resolve("traces");
+                Path file = traces.resolve(args[1]).normalize();
+                if (!file.startsWith(traces) || !Files.isRegularFile(file)) {
+                    sender.sendMessage("NO SUCH TRACE");
+                    return true;
+                }
+                int threads;
+                double speed;
+                try {
+                    threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+                    speed = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+                } catch (NumberFormatException e) {
+                    sender.sendMessage("NOT NUMBER");
+                    return true;
+                }
+                LoadHarness harness = new LoadHarness(this.plugin);
+                sender.sendMessage("Replaying " + file.getFileName() + " in the background...");
+                PlayerVaults.scheduler().runAsync(task -> {
+                    try {
+                        LoadHarness.Report report = harness.replay(AccessTrace.read(file), harness.flatFile(), threads, speed, sender::sendMessage);
+                        report.lines().forEach(sender::sendMessage);
+                    } catch (Exception e) {
+                        this.plugin.getLogger().log(Level.SEVERE, "Replay failed", e);
+                        sender.sendMessage("Replay failed: " + e.getMessage());
+                    }
+                });
+            } else if (args[0].equals("openforplayer")) {
                 if (args.length < 4) {
                     sender.sendMessage("/" + label + " openforplayer <player> <owner> <vaultid>");
                     return true;
@@ -20,8 +20,8 @@ package com.drtshock.playervaults.commands;
 
 import com.drtshock.playervaults.PlayerVaults;
 import com.drtshock.playervaults.converters.*;
+import com.drtshock.playervaults.tasks.JobScheduler;
 import com.drtshock.playervaults.util.Permission;
-import com.drtshock.playervaults.vaultmanagement.VaultOperations;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -72,17 +72,21 @@ public class ConvertCommand implements CommandExecutor {
                 } else {
                     // Fork into background
                     this.plugin.getTL().convertBackground().title().send(sender);
-                    PlayerVaults.scheduler().runLaterAsync(() -> {
+                    this.plugin.getJobs().submit("convert " + name, JobScheduler.Priority.MAINTENANCE, job -> {
                         int converted = 0;
-                        VaultOperations.setLocked(true);
                         for (Converter converter : applicableConverters) {
+                            if (job.isCancelled()) {
+                                break;
+                            }
                             if (converter.canConvert()) {
-                                converted += converter.run(sender);
+                                int result = new ConversionJob(this.plugin, converter.getName(), job).run(converter, sender);
+                                if (result > 0) {
+                                    converted += result;
+                                }
                             }
                         }
-                        VaultOperations.setLocked(false);
                         this.plugin.getTL().convertComplete().title().with("count", converted + "").send(sender);
-                    }, 5);
+                    });
                 }
             }
         }
@@ -0,0 +1,67 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.commands;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.tasks.JobScheduler;
+import com.drtshock.playervaults.tasks.VaultArchive;
+import com.drtshock.playervaults.util.Permission;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+
+public class ExportCommand implements CommandExecutor {
+    private final PlayerVaults plugin;
+
+    public ExportCommand(PlayerVaults plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(Permission.EXPORT)) {
+            this.plugin.getTL().noPerms().title().send(sender);
+            return true;
+        }
+
+        String name = "vaults-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + VaultArchive.EXTENSION;
+        Path target = VaultArchive.getFolder(this.plugin).resolve(name);
+        sender.sendMessage("Exporting all vaults to " + name + " in the background...");
+        this.plugin.getJobs().submit("export", JobScheduler.Priority.BACKUP, job -> {
+            try {
+                VaultArchive.Result result = new VaultArchive(this.plugin, job).export(target);
+                sender.sendMessage("Exported " + result.vaults() + " vaults of " + result.holders() + " holders to " + name + (result.failed() > 0 ? ", " + result.failed() + " holders failed. See console." : "."));
+            } catch (CancellationException e) {
+                sender.sendMessage("Export was cancelled.");
+                throw e;
+            } catch (IOException e) {
+                this.plugin.getLogger().log(Level.SEVERE, "Failed to export vaults", e);
+                sender.sendMessage("Export failed: " + e.getMessage());
+            }
+        });
+        return true;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.commands;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.tasks.JobScheduler;
+import com.drtshock.playervaults.tasks.VaultArchive;
+import com.drtshock.playervaults.util.Permission;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+
+public class ImportCommand implements CommandExecutor {
+    private final PlayerVaults plugin;
+
+    public ImportCommand(PlayerVaults plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(Permission.IMPORT)) {
+            this.plugin.getTL().noPerms().title().send(sender);
+            return true;
+        }
+        if (args.length == 0) {
+            sender.sendMessage("/" + label + " <archive file in plugins/PlayerVaults/exports>");
+            return true;
+        }
+
+        Path folder = VaultArchive.getFolder(this.plugin).toAbsolutePath().normalize();
+        Path source = folder.resolve(args[0]).normalize();
+        if (!source.startsWith(folder) || !Files.isRegularFile(source)) {
+            sender.sendMessage("No archive named " + args[0] + " in " + folder);
+            return true;
+        }
+
+        sender.sendMessage("Importing " + source.getFileName() + " in the background...");
+        this.plugin.getJobs().submit("import " + source.getFileName(), JobScheduler.Priority.BACKUP, job -> {
+            try {
+                VaultArchive.Result result = new VaultArchive(this.plugin, job).importFrom(source);
+                sender.sendMessage("Imported " + result.vaults() + " vaults of " + result.holders() + " holders" + (result.failed() > 0 ? ", " + result.failed() + " vaults failed. See console." : "."));
+            } catch (CancellationException e) {
+                sender.sendMessage("Import was cancelled, vaults already imported were kept.");
+                throw e;
+            } catch (IOException e) {
+                this.plugin.getLogger().log(Level.SEVERE, "Failed to import vaults", e);
+                sender.sendMessage("Import failed: " + e.getMessage());
+            }
+        });
+        return true;
+    }
+}
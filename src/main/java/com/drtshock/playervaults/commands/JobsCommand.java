@@ -0,0 +1,89 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.commands;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.tasks.JobScheduler;
+import com.drtshock.playervaults.util.Permission;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+
+public class JobsCommand implements CommandExecutor {
+    private final PlayerVaults plugin;
+
+    public JobsCommand(PlayerVaults plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(Permission.JOBS)) {
+            this.plugin.getTL().noPerms().title().send(sender);
+            return true;
+        }
+
+        JobScheduler scheduler = this.plugin.getJobs();
+        if (args.length == 0) {
+            List<JobScheduler.Job> jobs = scheduler.getJobs();
+            sender.sendMessage(String.format("%d background jobs, average tick %.1fms", jobs.size(), scheduler.getMspt()));
+            long now = System.currentTimeMillis();
+            for (JobScheduler.Job job : jobs) {
+                String state = job.getState() == JobScheduler.State.RUNNING && job.isThrottled() ? "throttled" : job.getState().name().toLowerCase();
+                sender.sendMessage(String.format("#%d %s [%s, %s] %ds, %dKB, %d threads %s", job.getId(), job.getName(), job.getPriority().getKey(), state,
+                        (now - job.getStarted()) / 1000, job.getBytes() / 1024, job.getThreads(), job.getProgress()));
+            }
+            return true;
+        }
+
+        if (args.length != 2) {
+            sender.sendMessage("/" + label + " [pause|resume|cancel <id>]");
+            return true;
+        }
+        JobScheduler.Job job;
+        try {
+            job = scheduler.get(Integer.parseInt(args[1]));
+        } catch (NumberFormatException e) {
+            job = null;
+        }
+        if (job == null) {
+            sender.sendMessage("No job with id " + args[1]);
+            return true;
+        }
+        switch (args[0].toLowerCase()) {
+            case "pause":
+                job.pause();
+                sender.sendMessage("Paused job #" + job.getId() + ", it stops at its next checkpoint.");
+                break;
+            case "resume":
+                job.resume();
+                sender.sendMessage("Resumed job #" + job.getId() + ".");
+                break;
+            case "cancel":
+                job.cancel();
+                sender.sendMessage("Cancelled job #" + job.getId() + ", it stops at its next checkpoint.");
+                break;
+            default:
+                sender.sendMessage("/" + label + " [pause|resume|cancel <id>]");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.commands;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.tasks.JobScheduler;
+import com.drtshock.playervaults.tasks.VaultMutation;
+import com.drtshock.playervaults.util.Permission;
+import org.bukkit.Material;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+public class MutateCommand implements CommandExecutor {
+    private final PlayerVaults plugin;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public MutateCommand(PlayerVaults plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(Permission.MUTATE)) {
+            this.plugin.getTL().noPerms().title().send(sender);
+            return true;
+        }
+
+        boolean remove = args.length >= 2 && args[0].equalsIgnoreCase("remove");
+        boolean replace = args.length >= 3 && args[0].equalsIgnoreCase("replace");
+        if (!remove && !replace) {
+            sender.sendMessage("/" + label + " remove <material>[:<model data>] [apply]");
+            sender.sendMessage("/" + label + " replace <material>[:<model data>] <replacement> [apply]");
+            sender.sendMessage("Without apply, only reports what would change.");
+            return true;
+        }
+
+        String[] match = args[1].split(":");
+        Material material = Material.matchMaterial(match[0]);
+        if (material == null) {
+            sender.sendMessage("Unknown material: " + match[0]);
+            return true;
+        }
+        int modelData = -1;
+        if (match.length > 1) {
+            try {
+                modelData = Integer.parseInt(match[1]);
+            } catch (NumberFormatException e) {
+                sender.sendMessage("Invalid custom model data: " + match[1]);
+                return true;
+            }
+        }
+        Material replacement = null;
+        if (replace) {
+            replacement = Material.matchMaterial(args[2]);
+            if (replacement == null || !replacement.isItem() || replacement.isAir()) {
+                sender.sendMessage("Unknown item: " + args[2]);
+                return true;
+            }
+        }
+        boolean apply = args[args.length - 1].equalsIgnoreCase("apply");
+
+        if (!this.running.compareAndSet(false, true)) {
+            sender.sendMessage("A mutation is already running.");
+            return true;
+        }
+        VaultMutation.Rule rule = new VaultMutation.Rule(material, modelData, replacement);
+        sender.sendMessage((apply ? "Applying " : "Dry run of ") + rule + " across all vaults in the background...");
+        this.plugin.getJobs().submit((apply ? "mutate " : "mutate dry run ") + rule.match().name(), JobScheduler.Priority.MAINTENANCE, job -> {
+            try {
+                VaultMutation.Result result = new VaultMutation(this.plugin, rule, !apply, job).run(message -> {
+                    this.plugin.getLogger().info(message);
+                    sender.sendMessage(message);
+                });
+                sender.sendMessage((apply ? "Changed " : "Would change ") + result.items() + " items in " + result.vaults() + " vaults of " + result.holders() + " holders, " + result.failed() + " failed.");
+                if (job.isCancelled()) {
+                    sender.sendMessage("Mutation was cancelled, " + result.deferred().size() + " holders were not processed.");
+                } else if (!result.deferred().isEmpty()) {
+                    sender.sendMessage(result.deferred().size() + " holders were skipped because a vault stayed open, run again to retry them.");
+                }
+                sender.sendMessage("Report written to " + this.plugin.getDataFolder().toPath().relativize(result.report()));
+            } catch (IOException e) {
+                this.plugin.getLogger().log(Level.SEVERE, "Failed to apply " + rule, e);
+                sender.sendMessage("Mutation failed: " + e.getMessage());
+            } finally {
+                this.running.set(false);
+            }
+        });
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.commands;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.tasks.JobScheduler;
+import com.drtshock.playervaults.util.Permission;
+import com.drtshock.playervaults.vaultmanagement.ItemIndex;
+import org.bukkit.Material;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SearchCommand implements CommandExecutor {
+    private static final int MAX_RESULTS = 20;
+
+    private final PlayerVaults plugin;
+    private final AtomicBoolean reindexing = new AtomicBoolean();
+
+    public SearchCommand(PlayerVaults plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(Permission.SEARCH)) {
+            this.plugin.getTL().noPerms().title().send(sender);
+            return true;
+        }
+        if (args.length == 0) {
+            sender.sendMessage("/" + label + " <material> [cmd:<model data>] [ench:<enchantment>] [name:<display name>]");
+            sender.sendMessage("/" + label + " reindex");
+            return true;
+        }
+
+        ItemIndex index = this.plugin.getItemIndex();
+        if (args.length == 1 && args[0].equalsIgnoreCase("reindex")) {
+            if (!this.reindexing.compareAndSet(false, true)) {
+                sender.sendMessage("The item index is already being rebuilt.");
+                return true;
+            }
+            sender.sendMessage("Rebuilding the item index in the background...");
+            this.plugin.getJobs().submit("reindex", JobScheduler.Priority.MAINTENANCE, job -> {
+                try {
+                    int vaults = index.reindex(job);
+                    sender.sendMessage(job.isCancelled() ? "Rebuilding the item index was cancelled after " + vaults + " vaults." : "Indexed " + vaults + " vaults.");
+                } finally {
+                    this.reindexing.set(false);
+                }
+            });
+            return true;
+        }
+
+        List<String> terms = new ArrayList<>();
+        Material material = Material.matchMaterial(args[0]);
+        if (material == null) {
+            sender.sendMessage("Unknown material: " + args[0]);
+            return true;
+        }
+        terms.add(ItemIndex.materialTerm(material));
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            String lower = arg.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("cmd:")) {
+                try {
+                    terms.add(ItemIndex.modelDataTerm(Integer.parseInt(arg.substring(4))));
+                } catch (NumberFormatException e) {
+                    sender.sendMessage("Invalid custom model data: " + arg.substring(4));
+                    return true;
+                }
+            } else if (lower.startsWith("ench:")) {
+                String key = lower.substring(5);
+                terms.add(ItemIndex.enchantmentTerm(key.contains(":") ? key : "minecraft:" + key));
+            } else if (lower.startsWith("name:")) {
+                // Names run to the end of the command so they may contain spaces.
+                String name = String.join(" ", Arrays.copyOfRange(args, i, args.length)).substring(5);
+                terms.add(ItemIndex.nameTerm(ItemIndex.nameHash(name)));
+                break;
+            } else {
+                sender.sendMessage("Unknown filter: " + arg);
+                return true;
+            }
+        }
+
+        if (!index.isReady()) {
+            sender.sendMessage("The item index has not been built yet, results may be incomplete. Run /" + label + " reindex to build it.");
+        }
+        PlayerVaults.scheduler().runAsync(task -> {
+            Map.Entry<List<ItemIndex.Hit>, Integer> result = index.search(terms, MAX_RESULTS);
+            if (result.getValue() == 0) {
+                sender.sendMessage("No matching items found.");
+                return;
+            }
+            sender.sendMessage("Found " + result.getValue() + " matching items" + (result.getValue() > MAX_RESULTS ? ", showing the first " + MAX_RESULTS : "") + ":");
+            for (ItemIndex.Hit hit : result.getKey()) {
+                String holder = this.plugin.getNameIfPlayer(hit.vault().holder());
+                sender.sendMessage(" " + holder + " vault " + hit.vault().number() + " slot " + hit.entry().slot() + ": " + hit.entry().amount() + "x " + hit.entry().material().name());
+            }
+        });
+        return true;
+    }
+}
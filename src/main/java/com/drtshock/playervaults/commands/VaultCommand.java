@@ -19,18 +19,25 @@
 package com.drtshock.playervaults.commands;
 
 import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.stats.Histogram;
+import com.drtshock.playervaults.stats.VaultStats;
 import com.drtshock.playervaults.util.Permission;
+import com.drtshock.playervaults.vaultmanagement.PayloadCache;
 import com.drtshock.playervaults.vaultmanagement.VaultManager;
 import com.drtshock.playervaults.vaultmanagement.VaultOperations;
+import com.drtshock.playervaults.vaultmanagement.VaultSelector;
+import com.drtshock.playervaults.vaultmanagement.VaultSummary;
 import com.drtshock.playervaults.vaultmanagement.VaultViewInfo;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 
+import java.util.Map;
+import java.util.stream.Collectors;
+
 public class VaultCommand implements CommandExecutor {
     private final PlayerVaults plugin;
 
@@ -45,6 +52,21 @@ public class VaultCommand implements CommandExecutor {
             return true;
         }
 
+        if (args.length == 1 && args[0].equalsIgnoreCase("stats") && sender.hasPermission(Permission.STATS)) {
+            sender.sendMessage(String.format("%-10s %8s %9s %9s %9s %9s", "operation", "count", "mean ms", "p50 ms", "p99 ms", "max ms"));
+            for (VaultStats.Timer timer : VaultStats.Timer.values()) {
+                Histogram histogram = timer.getHistogram();
+                sender.sendMessage(String.format("%-10s %8d %9s %9s %9s %9s", timer.getKey(), histogram.getCount(), VaultStats.millis(histogram.getMean()),
+                        VaultStats.millis(histogram.getPercentile(0.5)), VaultStats.millis(histogram.getPercentile(0.99)), VaultStats.millis(histogram.getMax())));
+            }
+            for (VaultStats.Counter counter : VaultStats.Counter.values()) {
+                sender.sendMessage(counter.getKey() + ": " + counter.getValue());
+            }
+            PayloadCache payloadCache = VaultManager.getInstance().getPayloadCache();
+            sender.sendMessage("payload cache: " + payloadCache.getHolders() + " holders, " + payloadCache.getUsedBytes() / 1024 + " of " + payloadCache.getBudget() / 1024 + " KB");
+            return true;
+        }
+
         if (sender instanceof Player player) {
             if (PlayerVaults.getInstance().getInVault().containsKey(player.getUniqueId().toString())) {
                 // don't let them open another vault.
@@ -52,6 +74,13 @@ public class VaultCommand implements CommandExecutor {
             }
 
             switch (args.length) {
+                case 0:
+                    if (player.hasPermission(Permission.COMMANDS_USE)) {
+                        VaultSelector.open(player, 0);
+                    } else {
+                        this.plugin.getTL().noPerms().title().send(sender);
+                    }
+                    break;
                 case 1:
                     if (VaultOperations.openOwnVault(player, args[0], true)) {
                         PlayerVaults.getInstance().getInVault().put(player.getUniqueId().toString(), new VaultViewInfo(player.getUniqueId().toString(), Integer.parseInt(args[0])));
@@ -65,17 +94,18 @@ public class VaultCommand implements CommandExecutor {
 
                     if ("list".equals(args[1])) {
                         String target = getTarget(args[0]);
-                        YamlConfiguration file = VaultManager.getInstance().getPlayerVaultFile(target, false);
-                        if (file == null) {
-                            this.plugin.getTL().vaultDoesNotExist().title().send(sender);
-                        } else {
-                            StringBuilder sb = new StringBuilder();
-                            for (String key : file.getKeys(false)) {
-                                sb.append(key.replace("vault", "")).append(" ");
+                        PlayerVaults.scheduler().runAsync(task -> {
+                            Map<Integer, VaultSummary> summaries = VaultManager.getInstance().getSummaries(target);
+                            if (summaries.isEmpty()) {
+                                this.plugin.getTL().vaultDoesNotExist().title().send(sender);
+                                return;
                             }
-
-                            this.plugin.getTL().existingVaults().title().with("player", args[0]).with("vault", sb.toString().trim()).send(sender);
-                        }
+                            String vaults = summaries.entrySet().stream()
+                                    .sorted(Map.Entry.comparingByKey())
+                                    .map(entry -> entry.getKey() + " (" + entry.getValue().slotsUsed() + "/" + entry.getValue().size() + ")")
+                                    .collect(Collectors.joining(" "));
+                            this.plugin.getTL().existingVaults().title().with("player", args[0]).with("vault", vaults).send(sender);
+                        });
                         break;
                     }
 
@@ -101,6 +101,33 @@ public class Config {
         }
     }
 
+    public class Jobs {
+        @Comment("Percentage of the server's processor cores a background job, like a purge or conversion, may use")
+        private int cpuPercent = 50;
+        @Comment("Kilobytes per second of vault data exports and imports may read and write. 0 for no limit.")
+        private int backupIoBudget = 16384;
+        @Comment("Background jobs slow down while the average tick takes longer than this many milliseconds. Needs Paper, elsewhere they slow down while ticks run late")
+        private double backoffMspt = 45;
+        @Comment("Background jobs slow down while at least this many vault saves are being written")
+        private int backoffSaves = 4;
+
+        public int getCpuPercent() {
+            return this.cpuPercent;
+        }
+
+        public int getBackupIoBudget() {
+            return this.backupIoBudget;
+        }
+
+        public double getBackoffMspt() {
+            return this.backoffMspt;
+        }
+
+        public int getBackoffSaves() {
+            return this.backoffSaves;
+        }
+    }
+
     public class Storage {
         public class FlatFile {
             @Comment("""
@@ -113,16 +140,71 @@ public class Config {
             }
         }
 
+        public class PayloadCache {
+            @Comment("""
+                    Keeps the vault files of players who left, and of holders changed by bulk jobs, in memory outside the heap,
+                     so staff tools and rejoins, like after a network switch, don't touch the disk.""")
+            private boolean enabled = true;
+            @Comment("Most memory, in megabytes, the cache may use. Least recently used holders are dropped first.")
+            private int megabytes = 64;
+            @Comment("Compress cached vaults, fitting more holders in the same memory at a small CPU cost.")
+            private boolean compress = true;
+
+            public boolean isEnabled() {
+                return this.enabled;
+            }
+
+            public int getMegabytes() {
+                return this.megabytes;
+            }
+
+            public boolean isCompress() {
+                return this.compress;
+            }
+        }
+
         private FlatFile flatFile = new FlatFile();
+        private PayloadCache payloadCache = new PayloadCache();
         private String storageType = "flatfile";
+        @Comment("""
+                Time, in seconds, to wait for open vaults to be written when the server stops.
+                 Vaults still being written after this are named in the console.""")
+        private int shutdownFlushTimeout = 10;
+        @Comment("""
+                Kilobytes per second of vault data that bulk jobs, like /pvmutate, may read and write.
+                 Keeps them from starving the server's disk. 0 for no limit.""")
+        private int bulkIoBudget = 8192;
+        @Comment("""
+                What to do when a vault is saved over a newer version than the one that was opened,
+                 like when staff and the owner both edit it, or it is deleted while open.
+                  merge: keep both sets of changes, items that don't fit are written to the conflicts folder
+                  overwrite: the last save wins, the version it replaced is written to the conflicts folder
+                  keep: the newer version stays, the last save is written to the conflicts folder""")
+        private String conflictPolicy = "merge";
 
         public FlatFile getFlatFile() {
             return this.flatFile;
         }
 
+        public PayloadCache getPayloadCache() {
+            return this.payloadCache;
+        }
+
         public String getStorageType() {
             return this.storageType;
         }
+
+        public int getShutdownFlushTimeout() {
+            return this.shutdownFlushTimeout;
+        }
+
+        public int getBulkIoBudget() {
+            return this.bulkIoBudget;
+        }
+
+        public String getConflictPolicy() {
+            return this.conflictPolicy;
+        }
     }
 
     @Comment("""
@@ -175,6 +257,12 @@ public class Config {
     @Comment("Storage option. Currently only flatfile, but soon more! :)")
     private Storage storage = new Storage();
 
+    @Comment("""
+            Background Jobs
+             Purges, conversions, migration, exports, imports, /pvmutate and reindexing run as background jobs.
+             They can be paused, resumed and cancelled with /pvjobs.""")
+    private Jobs jobs = new Jobs();
+
     public void setFromConfig(Logger l, FileConfiguration c) {
         l.info("Importing old configuration...");
         l.info("debug = " + (this.debug = c.getBoolean("debug", false)));
@@ -228,4 +316,8 @@ public class Config {
     public Storage getStorage() {
         return this.storage;
     }
+
+    public Jobs getJobs() {
+        return this.jobs;
+    }
 }
\ No newline at end of file
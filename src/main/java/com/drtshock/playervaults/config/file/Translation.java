@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @SuppressWarnings("FieldMayBeFinal")
@@ -89,25 +90,54 @@ public class Translation {
         }
 
         private void send(@NonNull CommandSender sender, @NonNull Map<String, String> map, @Nullable TL title) {
+            Translation translation = TL.plugin.getTL();
             this.forEach(line -> {
                 if (line == null || line.isEmpty()) {
                     return;
                 }
-                ComponentDispatcher.send(sender, this.getComponent(line, map, title));
+                String full = this.withTitle(line, title);
+                TagResolver placeholders = this.placeholders(full, map);
+                if (placeholders == null) {
+                    ComponentDispatcher.sendStatic(sender, translation.staticComponent(full));
+                } else {
+                    ComponentDispatcher.send(sender, MiniMessage.miniMessage().deserialize(full, placeholders));
+                }
             });
         }
 
         private @NonNull Component getComponent(@NonNull String line, @NonNull Map<String, String> map, @Nullable TL title) {
+            line = this.withTitle(line, title);
+            TagResolver placeholders = this.placeholders(line, map);
+            if (placeholders == null) {
+                return TL.plugin.getTL().staticComponent(line);
+            }
+            return MiniMessage.miniMessage().deserialize(line, placeholders);
+        }
+
+        private @NonNull String withTitle(@NonNull String line, @Nullable TL title) {
             if (title != null && !title.isEmpty()) {
-                line = title.get(0) + line;
+                return title.get(0) + line;
             }
-            TagResolver.Builder tagResolverBuilder = TagResolver.builder();
-            TL.plugin.getTL().colorMappings().forEach((k, v) -> {
-                TextColor color = v.startsWith("#") ? TextColor.fromHexString(v) : NamedTextColor.NAMES.value(v);
-                tagResolverBuilder.tag(k, Tag.styling(color == null ? NamedTextColor.WHITE : color));
-            });
-            map.forEach((k, v) -> tagResolverBuilder.resolver(Placeholder.unparsed(k, v)));
-            return MiniMessage.miniMessage().deserialize(line, tagResolverBuilder.build());
+            return line;
+        }
+
+        /**
+         * Builds a resolver for the placeholders used by a line.
+         *
+         * @return resolver including colors, or null if the line uses none of the placeholders
+         */
+        private @Nullable TagResolver placeholders(@NonNull String line, @NonNull Map<String, String> map) {
+            TagResolver.Builder tagResolverBuilder = null;
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                // Only resolve placeholders the line actually uses, anything else can't change the output
+                if (line.contains("<" + entry.getKey())) {
+                    if (tagResolverBuilder == null) {
+                        tagResolverBuilder = TagResolver.builder().resolver(TL.plugin.getTL().colorResolver());
+                    }
+                    tagResolverBuilder.resolver(Placeholder.unparsed(entry.getKey(), entry.getValue()));
+                }
+            }
+            return tagResolverBuilder == null ? null : tagResolverBuilder.build();
         }
 
         public @NonNull String getLegacy() {
@@ -119,6 +149,13 @@ public class Translation {
         }
 
         public @NonNull String getLegacy(@NonNull Map<String, String> map, @Nullable TL title) {
+            if (map.isEmpty() && title == null) {
+                return TL.plugin.getTL().staticLegacy.computeIfAbsent(this, tl -> tl.renderLegacy(map, null));
+            }
+            return this.renderLegacy(map, title);
+        }
+
+        private @NonNull String renderLegacy(@NonNull Map<String, String> map, @Nullable TL title) {
             return this.stream()
                     .map(line -> this.getComponent(line, map, title))
                     .filter(Objects::nonNull)
@@ -171,6 +208,13 @@ public class Translation {
         this.cleanupMiniMessup(this.translations.blockedItemWithoutModelData);
         this.cleanupMiniMessup(this.translations.blockedItemWithEnchantments);
         this.cleanupMiniMessup(this.translations.signsDisabled);
+        this.cleanupMiniMessup(this.translations.selectorTitle);
+        this.cleanupMiniMessup(this.translations.selectorVault);
+        this.cleanupMiniMessup(this.translations.selectorFill);
+        this.cleanupMiniMessup(this.translations.selectorPreview);
+        this.cleanupMiniMessup(this.translations.selectorEmpty);
+        this.cleanupMiniMessup(this.translations.selectorPreviousPage);
+        this.cleanupMiniMessup(this.translations.selectorNextPage);
         this.cleanupMiniMessup(this.placeholders.title);
         for (Map.Entry<String, String> entry : this.colorMappings.entrySet()) {
             if (entry.getValue().contains("§")) {
@@ -178,6 +222,35 @@ public class Translation {
                 entry.setValue(entry.getValue().replace('§', '&'));
             }
         }
+        this.compile();
+    }
+
+    /**
+     * Builds the color tag resolver from the current mappings and drops anything rendered with the old ones.
+     */
+    public void compile() {
+        TagResolver.Builder tagResolverBuilder = TagResolver.builder();
+        this.colorMappings.forEach((k, v) -> {
+            TextColor color = v.startsWith("#") ? TextColor.fromHexString(v) : NamedTextColor.NAMES.value(v);
+            tagResolverBuilder.tag(k, Tag.styling(color == null ? NamedTextColor.WHITE : color));
+        });
+        this.colorResolver = tagResolverBuilder.build();
+        this.staticComponents.clear();
+        this.staticLegacy.clear();
+        ComponentDispatcher.clearCache();
+    }
+
+    private @NonNull Component staticComponent(@NonNull String line) {
+        return this.staticComponents.computeIfAbsent(line, l -> MiniMessage.miniMessage().deserialize(l, this.colorResolver()));
+    }
+
+    private @NonNull TagResolver colorResolver() {
+        TagResolver resolver = this.colorResolver;
+        if (resolver == null) {
+            this.compile();
+            resolver = this.colorResolver;
+        }
+        return resolver;
     }
 
     private void cleanupMiniMessup(List<String> tl) {
@@ -231,6 +304,13 @@ public class Translation {
         private TL blockedItemWithoutModelData = TL.of("<error>This item is blocked from vaults.");
         private TL blockedItemWithEnchantments = TL.of("<error>This item's enchantments are blocked from vaults.");
         private TL signsDisabled = TL.of("<error>Vault signs are currently disabled.");
+        private TL selectorTitle = TL.of("<dark_red>Vaults (<page>/<pages>)");
+        private TL selectorVault = TL.of("<info>Vault #<vault>");
+        private TL selectorFill = TL.of("<normal><used>/<size> slots used");
+        private TL selectorPreview = TL.of("<normal>- <info><item>");
+        private TL selectorEmpty = TL.of("<normal>Empty");
+        private TL selectorPreviousPage = TL.of("<info>Previous page");
+        private TL selectorNextPage = TL.of("<info>Next page");
     }
 
     private Placeholders placeholders = new Placeholders();
@@ -240,6 +320,11 @@ public class Translation {
         TL.plugin = plugin;
     }
 
+    // Rendered output of lines and messages without placeholders, reset by compile()
+    private transient volatile TagResolver colorResolver;
+    private final transient Map<String, Component> staticComponents = new ConcurrentHashMap<>();
+    private final transient Map<TL, String> staticLegacy = new ConcurrentHashMap<>();
+
     @Comment("https://docs.adventure.kyori.net/minimessage.html#format")
     private Map<String, String> colorMappings = new HashMap<>() {
         {
@@ -375,6 +460,34 @@ public class Translation {
         return this.translations.signsDisabled;
     }
 
+    public @NonNull TL selectorTitle() {
+        return this.translations.selectorTitle;
+    }
+
+    public @NonNull TL selectorVault() {
+        return this.translations.selectorVault;
+    }
+
+    public @NonNull TL selectorFill() {
+        return this.translations.selectorFill;
+    }
+
+    public @NonNull TL selectorPreview() {
+        return this.translations.selectorPreview;
+    }
+
+    public @NonNull TL selectorEmpty() {
+        return this.translations.selectorEmpty;
+    }
+
+    public @NonNull TL selectorPreviousPage() {
+        return this.translations.selectorPreviousPage;
+    }
+
+    public @NonNull TL selectorNextPage() {
+        return this.translations.selectorNextPage;
+    }
+
     public @NonNull Map<String, String> colorMappings() {
         return Collections.unmodifiableMap(this.colorMappings);
     }
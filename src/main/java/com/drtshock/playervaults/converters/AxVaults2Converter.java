@@ -19,10 +19,8 @@
 package com.drtshock.playervaults.converters;
 
 import com.drtshock.playervaults.PlayerVaults;
-import com.drtshock.playervaults.vaultmanagement.VaultManager;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.util.io.BukkitObjectInputStream;
@@ -33,23 +31,20 @@ import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.logging.Level;
 
 public class AxVaults2Converter implements Converter {
 
     @SuppressWarnings("unchecked")
     @Override
-    public int run(CommandSender initiator) {
+    public int run(CommandSender initiator, ConversionSink sink) {
         PlayerVaults plugin = PlayerVaults.getInstance();
-        VaultManager vaultManager = VaultManager.getInstance();
 
         Plugin axVaultsPlugin = plugin.getServer().getPluginManager().getPlugin("AxVaults");
         Object database;
         Object serializer;
 
-        Set<String> uuids = new HashSet<>();
+        int count = 0;
 
         if (axVaultsPlugin == null) {
             plugin.getLogger().warning("AxVaults not running. Need it to convert.");
@@ -91,17 +86,10 @@ public class AxVaults2Converter implements Converter {
                     while (resultSet.next()) {
                         int id = resultSet.getInt("id");
                         String uuid = resultSet.getString("uuid");
-                        uuids.add(uuid);
-                        ItemStack[] items;
-                        try {
-                            items = (ItemStack[]) deserialize.invoke(serializer, resultSet.getBytes("storage"));
-                        } catch (Exception e) {
-                            initiator.getServer().getLogger().log(Level.WARNING, "Failed to load vault " + id + " for " + uuid, e);
-                            continue;
-                        }
-                        Inventory inventory = Bukkit.createInventory(null, items.length % 9 == 0 ? items.length : (6 * 9), "Converting!");
-                        inventory.setContents(items);
-                        vaultManager.saveVault(inventory, uuid, id);
+                        byte[] storage = resultSet.getBytes("storage");
+                        Object finalSerializer = serializer;
+                        sink.accept(uuid, id, () -> (ItemStack[]) deserialize.invoke(finalSerializer, storage));
+                        count++;
                     }
                 }
             }
@@ -111,7 +99,7 @@ public class AxVaults2Converter implements Converter {
             return -1;
         }
 
-        return uuids.size();
+        return count;
     }
 
     @Override
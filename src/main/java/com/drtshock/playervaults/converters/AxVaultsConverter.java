@@ -19,14 +19,13 @@
 package com.drtshock.playervaults.converters;
 
 import com.drtshock.playervaults.PlayerVaults;
-import com.drtshock.playervaults.vaultmanagement.VaultManager;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.util.io.BukkitObjectInputStream;
 
+import java.io.ByteArrayInputStream;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
@@ -40,14 +39,13 @@ public class AxVaultsConverter implements Converter {
 
     @SuppressWarnings("unchecked")
     @Override
-    public int run(CommandSender initiator) {
+    public int run(CommandSender initiator, ConversionSink sink) {
         PlayerVaults plugin = PlayerVaults.getInstance();
-        VaultManager vaultManager = VaultManager.getInstance();
 
         Plugin axVaultsPlugin = plugin.getServer().getPluginManager().getPlugin("AxVaults");
         Object database;
 
-        Set<String> uuids = new HashSet<>();
+        int count = 0;
 
         if (axVaultsPlugin == null) {
             plugin.getLogger().warning("AxVaults not running. Need it to convert.");
@@ -77,17 +75,13 @@ public class AxVaultsConverter implements Converter {
                     while (resultSet.next()) {
                         int id = resultSet.getInt("id");
                         String uuid = resultSet.getString("uuid");
-                        uuids.add(uuid);
-                        ItemStack[] items;
-                        try (BukkitObjectInputStream dataInput = new BukkitObjectInputStream(resultSet.getBinaryStream("storage"))) {
-                            items = (ItemStack[]) dataInput.readObject();
-                        } catch (Exception e) {
-                            initiator.getServer().getLogger().log(Level.WARNING, "Failed to load vault " + id + " for " + uuid, e);
-                            continue;
-                        }
-                        Inventory inventory = Bukkit.createInventory(null, items.length % 9 == 0 ? items.length : (6 * 9), "Converting!");
-                        inventory.setContents(items);
-                        vaultManager.saveVault(inventory, uuid, id);
+                        byte[] storage = resultSet.getBytes("storage");
+                        sink.accept(uuid, id, () -> {
+                            try (BukkitObjectInputStream dataInput = new BukkitObjectInputStream(new ByteArrayInputStream(storage))) {
+                                return (ItemStack[]) dataInput.readObject();
+                            }
+                        });
+                        count++;
                     }
                 }
             }
@@ -97,7 +91,7 @@ public class AxVaultsConverter implements Converter {
             return -1;
         }
 
-        return uuids.size();
+        return count;
     }
 
     @Override
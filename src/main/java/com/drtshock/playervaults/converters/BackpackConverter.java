@@ -19,18 +19,15 @@
 package com.drtshock.playervaults.converters;
 
 import com.drtshock.playervaults.PlayerVaults;
-import com.drtshock.playervaults.vaultmanagement.VaultManager;
-import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
 import java.io.File;
-import java.util.UUID;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Simple converter for Backpack (http://dev.bukkit.org/bukkit-plugins/backpack/)
@@ -40,7 +37,7 @@ import java.util.UUID;
 public class BackpackConverter implements Converter {
 
     @Override
-    public int run(CommandSender initiator) {
+    public int run(CommandSender initiator, ConversionSink sink) {
 
         PlayerVaults plugin = PlayerVaults.getInstance();
         File destination = new File(plugin.getDataFolder().getParentFile(), "Backpack" + File.separator + "backpacks");
@@ -54,7 +51,7 @@ public class BackpackConverter implements Converter {
         int vaultNum = 1;
         for (File file : worldDirs != null ? worldDirs : new File[0]) {
             if (file.isDirectory()) {
-                converted += convert(file, vaultNum);
+                converted += convert(file, vaultNum, sink);
                 vaultNum++;
             }
         }
@@ -62,48 +59,40 @@ public class BackpackConverter implements Converter {
         return converted;
     }
 
-    private int convert(File worldFolder, int intoVaultNum) {
+    private int convert(File worldFolder, int intoVaultNum, ConversionSink sink) {
         PlayerVaults plugin = PlayerVaults.getInstance();
-        VaultManager vaults = VaultManager.getInstance();
         int converted = 0;
-        long lastUpdate = 0;
         File[] files = worldFolder.listFiles();
         for (File file : files != null ? files : new File[0]) {
             if (file.isFile() && file.getName().toLowerCase().endsWith(".yml")) {
                 try {
-                    OfflinePlayer player = Bukkit.getOfflinePlayer(file.getName().substring(0, file.getName().lastIndexOf('.')));
-                    if (player == null || player.getUniqueId() == null) {
-                        plugin.getLogger().warning("Unable to convert Backpack for player: " + (player != null ? player.getName() : file.getName()));
-                    } else {
-                        UUID uuid = player.getUniqueId();
-                        FileConfiguration yaml = YamlConfiguration.loadConfiguration(file);
-                        ConfigurationSection section = yaml.getConfigurationSection("backpack");
-                        if (section.getKeys(false).size() <= 0) {
-                            continue; // No slots
-                        }
+                    // Names are resolved to UUIDs in bulk by the conversion job
+                    String name = file.getName().substring(0, file.getName().lastIndexOf('.'));
+                    FileConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+                    ConfigurationSection section = yaml.getConfigurationSection("backpack");
+                    if (section.getKeys(false).size() <= 0) {
+                        continue; // No slots
+                    }
 
-                        Inventory vault = vaults.getVault(uuid.toString(), intoVaultNum);
-                        if (vault == null) {
-                            vault = plugin.getServer().createInventory(null, section.getKeys(false).size());
-                        }
+                    // Overwrite the slots the backpack uses, keep the rest of the vault
+                    sink.merge(name, intoVaultNum, () -> {
+                        Map<Integer, ItemStack> slots = new HashMap<>();
+                        int size = section.getKeys(false).size();
                         for (String key : section.getKeys(false)) {
                             ConfigurationSection slotSection = section.getConfigurationSection(key);
                             ItemStack item = slotSection.getItemStack("ItemStack");
                             if (item == null) {
                                 continue;
                             }
-
-                            // Overwrite
-                            vault.setItem(Integer.parseInt(key.split(" ")[1]), item);
+                            int slot = Integer.parseInt(key.split(" ")[1]);
+                            slots.put(slot, item);
+                            size = Math.max(size, slot + 1);
                         }
-                        vaults.saveVault(vault, uuid.toString(), intoVaultNum);
-                        converted++;
-
-                        if (System.currentTimeMillis() - lastUpdate >= 1500) {
-                            plugin.getLogger().info(converted + " backpacks have been converted in " + worldFolder.getAbsolutePath());
-                            lastUpdate = System.currentTimeMillis();
-                        }
-                    }
+                        ItemStack[] items = new ItemStack[size];
+                        slots.forEach((slot, item) -> items[slot] = item);
+                        return items;
+                    });
+                    converted++;
                 } catch (Exception e) {
                     plugin.getLogger().warning("Error converting " + file.getAbsolutePath());
                     e.printStackTrace();
@@ -0,0 +1,334 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.converters;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.stats.VaultEvents;
+import com.drtshock.playervaults.tasks.JobScheduler;
+import com.drtshock.playervaults.vaultmanagement.VaultManager;
+import com.drtshock.playervaults.vaultmanagement.VaultOperations;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Runs a {@link Converter}, decoding its vaults in parallel and writing each holder's file once per batch.
+ * <p>
+ * Every written vault is recorded in a checkpoint file, so running the same conversion again after a crash or restart
+ * skips what was already done. The checkpoint is removed once a conversion finishes without failures. Cancelling the
+ * background job stops decoding new vaults, but still writes everything already decoded.
+ */
+public class ConversionJob implements ConversionSink {
+
+    // Holders waiting to be written before the oldest one is flushed early
+    private static final int MAX_PENDING_HOLDERS = 256;
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    private record Pending(ItemStack[] contents, boolean merge) {
+    }
+
+    private final PlayerVaults plugin;
+    private final String name;
+    private final Path checkpoint;
+    private final Set<String> done = new HashSet<>();
+    private final JobScheduler.Job job;
+    private final Semaphore inFlight;
+    private final LinkedHashMap<String, Map<Integer, Pending>> batches = new LinkedHashMap<>();
+    private final Object[] holderLocks = new Object[64];
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private UserCacheIndex names;
+    private ExecutorService workers;
+    private BufferedWriter checkpointWriter;
+    private long start;
+    private volatile long lastProgress;
+
+    public ConversionJob(PlayerVaults plugin, String name, JobScheduler.Job job) {
+        this.plugin = plugin;
+        this.name = name;
+        this.job = job;
+        this.inFlight = new Semaphore(job.getThreads() * 4);
+        this.checkpoint = plugin.getDataFolder().toPath().resolve("convert-" + name.toLowerCase() + ".checkpoint");
+        for (int i = 0; i < this.holderLocks.length; i++) {
+            this.holderLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Runs the converter and waits for everything it found to be written.
+     *
+     * @param converter converter to run
+     * @param initiator the initiator of the conversion. May be null
+     * @return the number of vaults written, or -1 if the converter could not read its data
+     */
+    public int run(Converter converter, CommandSender initiator) {
+        this.start = System.currentTimeMillis();
+        this.lastProgress = this.start;
+        try {
+            this.loadCheckpoint();
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.SEVERE, "Could not prepare conversion checkpoint " + this.checkpoint, e);
+            return -1;
+        }
+        if (!this.done.isEmpty()) {
+            this.plugin.getLogger().info("Resuming " + this.name + " conversion, " + this.done.size() + " vaults were already converted.");
+        }
+        this.names = UserCacheIndex.load(this.plugin.getLogger());
+        PlayerVaults.debug("Indexed " + this.names.size() + " player names", this.start);
+
+        this.workers = this.job.newPool("Conversion");
+
+        int found;
+        try {
+            found = converter.run(initiator, this);
+        } catch (Exception e) {
+            this.plugin.getLogger().log(Level.SEVERE, "Failed to convert from " + this.name, e);
+            found = -1;
+        } finally {
+            this.workers.shutdown();
+            try {
+                while (!this.workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                    this.logProgress(true);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.flushAll();
+            this.closeCheckpoint();
+        }
+
+        if (this.job.isCancelled()) {
+            this.plugin.getLogger().info("Stopped " + this.name + " conversion, run it again to continue.");
+        } else if (found >= 0 && this.failed.get() == 0) {
+            try {
+                Files.deleteIfExists(this.checkpoint);
+            } catch (IOException e) {
+                this.plugin.getLogger().log(Level.WARNING, "Could not delete conversion checkpoint " + this.checkpoint, e);
+            }
+        } else if (this.failed.get() > 0) {
+            this.plugin.getLogger().warning(this.failed.get() + " vaults failed to convert from " + this.name + ". Run the conversion again to retry them.");
+        }
+        this.names.reportUnresolved(this.plugin.getLogger(), this.name);
+        this.logProgress(true);
+        return found < 0 && this.written.get() == 0 ? -1 : this.written.get();
+    }
+
+    @Override
+    public void accept(String holder, int number, Decoder decoder) {
+        this.submit(holder, number, decoder, false);
+    }
+
+    @Override
+    public void merge(String holder, int number, Decoder decoder) {
+        this.submit(holder, number, decoder, true);
+    }
+
+    private void submit(String source, int number, Decoder decoder, boolean merge) {
+        String holder = this.names.resolve(source);
+        if (this.done.contains(holder + ' ' + number)) {
+            this.skipped.incrementAndGet();
+            return;
+        }
+        try {
+            this.job.checkpoint();
+        } catch (CancellationException e) {
+            // Converters catch their own errors, so let them run out without decoding anything else
+            return;
+        }
+        // Keeps the converter from reading the whole source into memory ahead of the decoders
+        this.inFlight.acquireUninterruptibly();
+        try {
+            this.workers.execute(() -> {
+                try {
+                    ItemStack[] contents = decoder.decode();
+                    if (contents == null) {
+                        throw new IllegalStateException("No contents");
+                    }
+                    this.add(holder, number, new Pending(size(contents), merge));
+                } catch (Throwable t) {
+                    this.failed.incrementAndGet();
+                    this.plugin.getLogger().log(Level.WARNING, "Failed to read vault " + number + " of " + holder + " from " + this.name, t);
+                } finally {
+                    this.inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            this.inFlight.release();
+            throw e;
+        }
+    }
+
+    private void add(String holder, int number, Pending pending) {
+        Map.Entry<String, Map<Integer, Pending>> eldest = null;
+        synchronized (this.batches) {
+            this.batches.computeIfAbsent(holder, k -> new HashMap<>()).put(number, pending);
+            if (this.batches.size() > MAX_PENDING_HOLDERS) {
+                Iterator<Map.Entry<String, Map<Integer, Pending>>> iterator = this.batches.entrySet().iterator();
+                eldest = iterator.next();
+                iterator.remove();
+            }
+        }
+        if (eldest != null) {
+            this.flush(eldest.getKey(), eldest.getValue());
+        }
+        this.logProgress(false);
+    }
+
+    private void flushAll() {
+        Map<String, Map<Integer, Pending>> remaining;
+        synchronized (this.batches) {
+            remaining = new LinkedHashMap<>(this.batches);
+            this.batches.clear();
+        }
+        remaining.forEach(this::flush);
+    }
+
+    private void flush(String holder, Map<Integer, Pending> batch) {
+        // Two batches for the same holder must not edit its file at the same time
+        synchronized (this.holderLocks[Math.floorMod(holder.hashCode(), this.holderLocks.length)]) {
+            VaultManager vaultManager = VaultManager.getInstance();
+            Map<Integer, ItemStack[]> contents = new HashMap<>();
+            VaultEvents.ConverterBatch event = new VaultEvents.ConverterBatch();
+            event.begin();
+            try {
+                // Viewers of this holder are kicked and saved first, so merges read their latest contents
+                VaultOperations.withMaintenance(holder, () -> {
+                    batch.forEach((number, pending) -> {
+                        ItemStack[] items = pending.contents();
+                        if (pending.merge()) {
+                            ItemStack[] existing = vaultManager.getVault(holder, number).getContents();
+                            ItemStack[] merged = new ItemStack[Math.max(existing.length, items.length)];
+                            System.arraycopy(existing, 0, merged, 0, existing.length);
+                            for (int i = 0; i < items.length; i++) {
+                                if (items[i] != null) {
+                                    merged[i] = items[i];
+                                }
+                            }
+                            items = merged;
+                        }
+                        contents.put(number, items);
+                    });
+                    vaultManager.saveVaults(holder, contents);
+                });
+            } catch (Exception e) {
+                this.failed.addAndGet(batch.size());
+                this.plugin.getLogger().log(Level.SEVERE, "Failed to write vaults " + batch.keySet() + " of " + holder + " from " + this.name, e);
+                return;
+            }
+            if (event.shouldCommit()) {
+                event.converter = this.name;
+                event.holder = holder;
+                event.vaults = contents.size();
+                event.slots = contents.values().stream().mapToInt(items -> items.length).sum();
+                event.commit();
+            }
+            this.written.addAndGet(contents.size());
+            this.recordCheckpoint(holder, contents.keySet());
+            if (!isOnline(holder)) {
+                // Nobody will open these soon, don't keep tens of thousands of files cached
+                vaultManager.removeCachedPlayerVaultFile(holder);
+            }
+        }
+    }
+
+    private void logProgress(boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && now - this.lastProgress < PROGRESS_INTERVAL) {
+            return;
+        }
+        this.lastProgress = now;
+        long seconds = Math.max(1, (now - this.start) / 1000);
+        String progress = this.written.get() + " vaults written (" + (this.written.get() / seconds) + "/s), " + this.skipped.get() + " already done, " + this.failed.get() + " failed.";
+        this.job.setProgress(this.name + ": " + progress);
+        this.plugin.getLogger().info(this.name + " conversion: " + progress);
+    }
+
+    private void loadCheckpoint() throws IOException {
+        if (Files.exists(this.checkpoint)) {
+            this.done.addAll(Files.readAllLines(this.checkpoint, StandardCharsets.UTF_8));
+        }
+        this.checkpointWriter = Files.newBufferedWriter(this.checkpoint, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void recordCheckpoint(String holder, Set<Integer> numbers) {
+        synchronized (this.done) {
+            try {
+                for (int number : numbers) {
+                    this.checkpointWriter.write(holder + ' ' + number);
+                    this.checkpointWriter.newLine();
+                }
+                this.checkpointWriter.flush();
+            } catch (IOException e) {
+                this.plugin.getLogger().log(Level.WARNING, "Could not update conversion checkpoint " + this.checkpoint, e);
+            }
+        }
+    }
+
+    private void closeCheckpoint() {
+        synchronized (this.done) {
+            try {
+                this.checkpointWriter.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static boolean isOnline(String holder) {
+        try {
+            return Bukkit.getPlayer(UUID.fromString(holder)) != null;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Vault sizes must be a multiple of 9, anything odd becomes a full size vault as before
+    private static ItemStack[] size(ItemStack[] contents) {
+        int size = contents.length;
+        if (size == 0 || size % 9 != 0) {
+            size = Math.max(6 * 9, ((size + 8) / 9) * 9);
+        }
+        if (size == contents.length) {
+            return contents;
+        }
+        ItemStack[] sized = new ItemStack[size];
+        System.arraycopy(contents, 0, sized, 0, contents.length);
+        return sized;
+    }
+}
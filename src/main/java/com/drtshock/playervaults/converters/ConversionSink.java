@@ -0,0 +1,53 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.converters;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Receives the vaults found by a {@link Converter}.
+ */
+public interface ConversionSink {
+
+    /**
+     * Produces the contents of one vault. Called later, possibly on another thread.
+     */
+    @FunctionalInterface
+    interface Decoder {
+        ItemStack[] decode() throws Throwable;
+    }
+
+    /**
+     * Queues a vault to be decoded and written, replacing anything already stored in it.
+     *
+     * @param holder UUID (string) or name of the vault's owner
+     * @param number vault number
+     * @param decoder produces the contents
+     */
+    void accept(String holder, int number, Decoder decoder);
+
+    /**
+     * Queues a vault to be decoded and placed over what is already stored in it. Null slots keep their existing item.
+     *
+     * @param holder UUID (string) or name of the vault's owner
+     * @param number vault number
+     * @param decoder produces the contents
+     */
+    void merge(String holder, int number, Decoder decoder);
+}
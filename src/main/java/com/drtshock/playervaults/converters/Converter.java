@@ -28,12 +28,14 @@ import org.bukkit.command.CommandSender;
 public interface Converter {
 
     /**
-     * Converts the other plugin's data.
+     * Reads the other plugin's data, handing each vault to the sink. Decoding and writing are left to the sink,
+     * which may do them in parallel, so decoders must not depend on state the converter changes afterwards.
      *
      * @param initiator the initiator of the conversion. May be null
-     * @return the number of vaults converted. Returns 0 on none converted or -1 if no vaults were converted.
+     * @param sink where to send each vault found
+     * @return the number of vaults handed to the sink. Returns 0 on none found or -1 if the data could not be read.
      */
-    int run(CommandSender initiator);
+    int run(CommandSender initiator, ConversionSink sink);
 
     /**
      * Determines if this converter is applicable for converting to PlayerVaults. This may check for the existance of a
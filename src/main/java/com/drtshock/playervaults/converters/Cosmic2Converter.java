@@ -19,11 +19,10 @@
 package com.drtshock.playervaults.converters;
 
 import com.drtshock.playervaults.PlayerVaults;
-import com.drtshock.playervaults.vaultmanagement.VaultManager;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -31,9 +30,8 @@ import java.nio.file.Path;
 public class Cosmic2Converter implements Converter {
 
     @Override
-    public int run(CommandSender initiator) {
+    public int run(CommandSender initiator, ConversionSink sink) {
         PlayerVaults plugin = PlayerVaults.getInstance();
-        VaultManager vaults = VaultManager.getInstance();
         // Cosmic 2.x
         Path path = plugin.getDataFolder().toPath().getParent().resolve("CosmicVaults").resolve("Data.yml");
         if (!Files.exists(path)) {
@@ -50,7 +48,6 @@ public class Cosmic2Converter implements Converter {
         }
 
         int converted = 0;
-        long lastUpdate = 0;
         for (String playerId : players.getKeys(false)) {
             ConfigurationSection player = players.getConfigurationSection(playerId);
             for (String vaultId : player.getKeys(false)) {
@@ -58,16 +55,14 @@ public class Cosmic2Converter implements Converter {
                 if (vault.getKeys(false).size() == 0) {
                     continue;
                 }
-                Inventory inventory = plugin.getServer().createInventory(null, 54);
-                for (String slotS : vault.getKeys(false)) {
-                    inventory.setItem(Integer.parseInt(slotS), vault.getItemStack(slotS));
-                }
-                vaults.saveVault(inventory, playerId, Integer.parseInt(vaultId));
+                sink.accept(playerId, Integer.parseInt(vaultId), () -> {
+                    ItemStack[] items = new ItemStack[54];
+                    for (String slotS : vault.getKeys(false)) {
+                        items[Integer.parseInt(slotS)] = vault.getItemStack(slotS);
+                    }
+                    return items;
+                });
                 converted++;
-                if (System.currentTimeMillis() - lastUpdate >= 1500) {
-                    plugin.getLogger().info(converted + " vaults have been converted...");
-                    lastUpdate = System.currentTimeMillis();
-                }
             }
         }
         return converted;
@@ -19,11 +19,10 @@
 package com.drtshock.playervaults.converters;
 
 import com.drtshock.playervaults.PlayerVaults;
-import com.drtshock.playervaults.vaultmanagement.VaultManager;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -31,9 +30,8 @@ import java.nio.file.Path;
 public class Cosmic3Converter implements Converter {
 
     @Override
-    public int run(CommandSender initiator) {
+    public int run(CommandSender initiator, ConversionSink sink) {
         PlayerVaults plugin = PlayerVaults.getInstance();
-        VaultManager vaultManager = VaultManager.getInstance();
         // Cosmic 3.x
         Path path = plugin.getDataFolder().toPath().getParent().resolve("CosmicVaults").resolve("vaults.yml");
         if (!Files.exists(path)) {
@@ -50,7 +48,6 @@ public class Cosmic3Converter implements Converter {
         }
 
         int converted = 0;
-        long lastUpdate = 0;
         for (String vaultId : vaults.getKeys(false)) {
             ConfigurationSection vault = vaults.getConfigurationSection(vaultId);
             String owner = vault.getString("owner");
@@ -62,16 +59,14 @@ public class Cosmic3Converter implements Converter {
             if (contents.getKeys(false).size() == 0) {
                 continue;
             }
-            Inventory inventory = plugin.getServer().createInventory(null, 9 * rows);
-            for (String slotS : contents.getKeys(false)) {
-                inventory.setItem(Integer.parseInt(slotS), contents.getItemStack(slotS));
-            }
-            vaultManager.saveVault(inventory, owner, number);
+            sink.accept(owner, number, () -> {
+                ItemStack[] items = new ItemStack[9 * rows];
+                for (String slotS : contents.getKeys(false)) {
+                    items[Integer.parseInt(slotS)] = contents.getItemStack(slotS);
+                }
+                return items;
+            });
             converted++;
-            if (System.currentTimeMillis() - lastUpdate >= 1500) {
-                plugin.getLogger().info(converted + " vaults have been converted...");
-                lastUpdate = System.currentTimeMillis();
-            }
         }
         return converted;
     }
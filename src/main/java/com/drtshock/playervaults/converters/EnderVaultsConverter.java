@@ -19,7 +19,6 @@
 package com.drtshock.playervaults.converters;
 
 import com.drtshock.playervaults.PlayerVaults;
-import com.drtshock.playervaults.vaultmanagement.VaultManager;
 import org.bukkit.command.CommandSender;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.plugin.Plugin;
@@ -41,9 +40,8 @@ public class EnderVaultsConverter implements Converter {
 
     @SuppressWarnings("unchecked")
     @Override
-    public int run(CommandSender initiator) {
+    public int run(CommandSender initiator, ConversionSink sink) {
         PlayerVaults plugin = PlayerVaults.getInstance();
-        VaultManager vaultManager = VaultManager.getInstance();
 
         Path path = plugin.getDataFolder().toPath().getParent().resolve("EnderVaults").resolve("data");
         if (!Files.isDirectory(path)) {
@@ -89,7 +87,7 @@ public class EnderVaultsConverter implements Converter {
             return -1;
         }
 
-        AtomicInteger playerCount = new AtomicInteger(0);
+        AtomicInteger vaultCount = new AtomicInteger(0);
         try (Stream<Path> dir = Files.list(path)) {
             dir.forEach(f -> {
                 if (!Files.isDirectory(f)) {
@@ -101,18 +99,17 @@ public class EnderVaultsConverter implements Converter {
                         Inventory inventory = (Inventory) getInventory.invoke(vault);
                         Map<String, Object> meta = (Map<String, Object>) getMetadata.invoke(vault);
                         Integer order = (Integer) meta.get("order");
-                        vaultManager.saveVault(inventory, f.getFileName().toString(), order);
+                        sink.accept(f.getFileName().toString(), order, inventory::getContents);
+                        vaultCount.incrementAndGet();
                     }
                 } catch (Throwable e) {
                     e.printStackTrace();
-                    return;
                 }
-                playerCount.incrementAndGet();
             });
         } catch (IOException e) {
             plugin.getLogger().log(Level.SEVERE, "Failed. ", e);
         }
-        return playerCount.get();
+        return vaultCount.get();
     }
 
     @Override
@@ -19,16 +19,15 @@
 package com.drtshock.playervaults.converters;
 
 import com.drtshock.playervaults.PlayerVaults;
-import com.drtshock.playervaults.vaultmanagement.VaultManager;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -37,10 +36,8 @@ import java.util.logging.Level;
 public class FairyVaultsConverter implements Converter {
 
     @Override
-    public int run(CommandSender initiator) {
+    public int run(CommandSender initiator, ConversionSink sink) {
         PlayerVaults plugin = PlayerVaults.getInstance();
-        VaultManager vaultManager = VaultManager.getInstance();
-
 
         Plugin fairyPlugin = plugin.getServer().getPluginManager().getPlugin("FairyVaults");
         if (fairyPlugin == null) {
@@ -74,11 +71,13 @@ public class FairyVaultsConverter implements Converter {
                 try {
                     String uuid = results.getString("playerid");
                     byte[] items = results.getBytes("itemset");
-                    Object virtInv = deserialize.invoke(null, (Object) items);
-                    ItemStack[] itemsStacks = (ItemStack[]) getItems.invoke(virtInv);
-                    Inventory inventory = Bukkit.createInventory(null, items.length % 9 == 0 && items.length < 55 ? items.length : (6 * 9), "Converting!");
-                    inventory.setContents(itemsStacks);
-                    vaultManager.saveVault(inventory, uuid, vaultIds.computeIfAbsent(uuid, k -> new AtomicInteger()).incrementAndGet());
+                    sink.accept(uuid, vaultIds.computeIfAbsent(uuid, k -> new AtomicInteger()).incrementAndGet(), () -> {
+                        Object virtInv = deserialize.invoke(null, (Object) items);
+                        ItemStack[] itemStacks = (ItemStack[]) getItems.invoke(virtInv);
+                        // Fairy sizes by the serialized data, not the item count
+                        int size = items.length % 9 == 0 && items.length < 55 ? items.length : (6 * 9);
+                        return itemStacks.length == size ? itemStacks : Arrays.copyOf(itemStacks, Math.max(size, itemStacks.length));
+                    });
                     count++;
                 } catch (Exception e) {
                     plugin.getLogger().log(Level.WARNING, "Invalid data found for vault id: " + results.getInt("vaultid"), e);
@@ -1,7 +1,6 @@
 package com.drtshock.playervaults.converters;
 
 import com.drtshock.playervaults.PlayerVaults;
-import com.drtshock.playervaults.vaultmanagement.VaultManager;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.inventory.Inventory;
@@ -17,9 +16,8 @@ public class MaltsConverter implements Converter {
 
 
     @Override
-    public int run(CommandSender initiator) {
+    public int run(CommandSender initiator, ConversionSink sink) {
         PlayerVaults plugin = PlayerVaults.getInstance();
-        VaultManager vaultManager = VaultManager.getInstance();
         int convertedCount = 0;
 
         try {
@@ -33,13 +31,13 @@ public class MaltsConverter implements Converter {
                     int id = (int) vault.getClass().getMethod("getId").invoke(vault);
                     Inventory inventory = (Inventory) vault.getClass().getMethod("getInventory").invoke(vault);
 
-                    vaultManager.saveVault(inventory, owner.toString(), id);
+                    sink.accept(owner.toString(), id, inventory::getContents);
                     convertedCount++;
                 } catch (ReflectiveOperationException e) {
                     plugin.getLogger().severe("Failed to convert a vault: " + e.getMessage());
                 }
             }
-            initiator.sendMessage("Converted " + convertedCount + " vaults from Malts.");
+            initiator.sendMessage("Found " + convertedCount + " vaults to convert from Malts.");
 
         } catch (ReflectiveOperationException e) {
             initiator.getServer().getLogger().log(Level.SEVERE, "Failed to convert vaults", e);
@@ -1,11 +1,8 @@
 package com.drtshock.playervaults.converters;
 
 import com.drtshock.playervaults.PlayerVaults;
-import com.drtshock.playervaults.vaultmanagement.VaultManager;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.command.CommandSender;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.util.io.BukkitObjectInputStream;
@@ -33,9 +30,8 @@ import java.util.stream.Stream;
 
 public class UniVaultsConverter implements Converter {
     @Override
-    public int run(CommandSender initiator) {
+    public int run(CommandSender initiator, ConversionSink sink) {
         PlayerVaults plugin = PlayerVaults.getInstance();
-        VaultManager vaultManager = VaultManager.getInstance();
 
         AtomicInteger counter = new AtomicInteger(0);
 
@@ -52,29 +48,29 @@ public class UniVaultsConverter implements Converter {
                     int id = Integer.parseInt(matcher.group(2));
                     try {
                         String b64 = Files.readString(p);
-                        ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(Base64.getMimeDecoder().decode(b64));
-                        try (BukkitObjectInputStream bukkitObjectInputStream = new BukkitObjectInputStream(byteArrayInputStream)) {
-                            ItemStack[] items = (ItemStack[]) bukkitObjectInputStream.readObject();
-                            boolean cursed = true;
-                            if (items[items.length - 9] == null || !(items[items.length - 9].getType() == Material.PAPER || items[items.length - 9].getType() == Material.GRAY_STAINED_GLASS_PANE)) {
-                                cursed = false;
-                            }
-                            for (int i = items.length - 8; i < items.length - 1; i++) {
-                                if (items[i] == null || !(items[i].getType() == Material.GRAY_STAINED_GLASS_PANE)) {
+                        sink.accept(uuid, id, () -> {
+                            ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(Base64.getMimeDecoder().decode(b64));
+                            try (BukkitObjectInputStream bukkitObjectInputStream = new BukkitObjectInputStream(byteArrayInputStream)) {
+                                ItemStack[] items = (ItemStack[]) bukkitObjectInputStream.readObject();
+                                boolean cursed = true;
+                                if (items[items.length - 9] == null || !(items[items.length - 9].getType() == Material.PAPER || items[items.length - 9].getType() == Material.GRAY_STAINED_GLASS_PANE)) {
                                     cursed = false;
                                 }
+                                for (int i = items.length - 8; i < items.length - 1; i++) {
+                                    if (items[i] == null || !(items[i].getType() == Material.GRAY_STAINED_GLASS_PANE)) {
+                                        cursed = false;
+                                    }
+                                }
+                                if (items[items.length - 1] == null || !(items[items.length - 1].getType() == Material.PAPER || items[items.length - 1].getType() == Material.GRAY_STAINED_GLASS_PANE)) {
+                                    cursed = false;
+                                }
+                                if (cursed) {
+                                    items = Arrays.copyOfRange(items, 0, items.length - 9);
+                                }
+                                return items;
                             }
-                            if (items[items.length - 1] == null || !(items[items.length - 1].getType() == Material.PAPER || items[items.length - 1].getType() == Material.GRAY_STAINED_GLASS_PANE)) {
-                                cursed = false;
-                            }
-                            if (cursed) {
-                                items = Arrays.copyOfRange(items, 0, items.length - 9);
-                            }
-                            Inventory inventory = Bukkit.createInventory(null, items.length % 9 == 0 ? items.length : (6 * 9), "Converting!");
-                            inventory.setContents(items);
-                            vaultManager.saveVault(inventory, uuid, id);
-                            counter.incrementAndGet();
-                        }
+                        });
+                        counter.incrementAndGet();
                     } catch (Exception e) {
                         plugin.getLogger().log(Level.SEVERE, "Failed to read vault " + p.getFileName(), e);
                     }
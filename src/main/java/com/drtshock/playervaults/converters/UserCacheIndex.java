@@ -0,0 +1,142 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.converters;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Resolves player names to UUIDs from what the server already knows, the user cache and saved player data,
+ * so converters don't need a profile lookup per player.
+ */
+public class UserCacheIndex {
+    private final Map<String, UUID> byName;
+    private final boolean onlineMode = Bukkit.getOnlineMode();
+    // Names missing from the index, with whatever the server resolved them to
+    private final Map<String, String> fallback = new ConcurrentHashMap<>();
+    private final Set<String> unresolved = ConcurrentHashMap.newKeySet();
+
+    private UserCacheIndex(Map<String, UUID> byName) {
+        this.byName = byName;
+    }
+
+    /**
+     * Builds the index. Reads the user cache first so that saved player data, which is more authoritative, wins.
+     *
+     * @param logger logger to report problems to
+     * @return index
+     */
+    public static UserCacheIndex load(Logger logger) {
+        Map<String, UUID> byName = new HashMap<>();
+        File userCache = new File(Bukkit.getWorldContainer(), "usercache.json");
+        if (!userCache.exists()) {
+            userCache = new File("usercache.json");
+        }
+        if (userCache.exists()) {
+            try (Reader reader = Files.newBufferedReader(userCache.toPath(), StandardCharsets.UTF_8)) {
+                JsonArray entries = JsonParser.parseReader(reader).getAsJsonArray();
+                for (JsonElement element : entries) {
+                    JsonObject entry = element.getAsJsonObject();
+                    if (entry.has("name") && entry.has("uuid")) {
+                        try {
+                            byName.put(entry.get("name").getAsString().toLowerCase(Locale.ROOT), UUID.fromString(entry.get("uuid").getAsString()));
+                        } catch (IllegalArgumentException ignored) {
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Could not read " + userCache + ", names will be looked up individually", e);
+            }
+        }
+        for (OfflinePlayer player : Bukkit.getOfflinePlayers()) {
+            if (player.getName() != null) {
+                byName.put(player.getName().toLowerCase(Locale.ROOT), player.getUniqueId());
+            }
+        }
+        return new UserCacheIndex(byName);
+    }
+
+    /**
+     * Resolves a holder to a UUID string. UUIDs are returned as they are.
+     *
+     * @param holder UUID (string) or player name
+     * @return UUID string, or the holder itself if it can't be resolved
+     */
+    public String resolve(String holder) {
+        if (holder.length() == 36) {
+            try {
+                return UUID.fromString(holder).toString();
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        UUID uuid = this.byName.get(holder.toLowerCase(Locale.ROOT));
+        if (uuid != null) {
+            return uuid.toString();
+        }
+        if (!this.onlineMode) {
+            // Same UUID the server would give this name
+            return UUID.nameUUIDFromBytes(("OfflinePlayer:" + holder).getBytes(StandardCharsets.UTF_8)).toString();
+        }
+        return this.fallback.computeIfAbsent(holder, name -> {
+            this.unresolved.add(name);
+            OfflinePlayer player = Bukkit.getOfflinePlayer(name);
+            return player.getUniqueId() != null ? player.getUniqueId().toString() : name;
+        });
+    }
+
+    public int size() {
+        return this.byName.size();
+    }
+
+    /**
+     * Logs the names that had to be looked up individually, if any.
+     *
+     * @param logger logger to report to
+     * @param source name of what was being converted
+     */
+    public void reportUnresolved(Logger logger, String source) {
+        if (this.unresolved.isEmpty()) {
+            return;
+        }
+        List<String> names = new ArrayList<>(this.unresolved);
+        names.sort(String.CASE_INSENSITIVE_ORDER);
+        String shown = String.join(", ", names.subList(0, Math.min(50, names.size())));
+        logger.warning(names.size() + " names from " + source + " were not in the user cache and were looked up individually: " + shown + (names.size() > 50 ? ", ..." : ""));
+    }
+}
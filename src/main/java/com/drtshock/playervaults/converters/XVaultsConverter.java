@@ -19,11 +19,8 @@
 package com.drtshock.playervaults.converters;
 
 import com.drtshock.playervaults.PlayerVaults;
-import com.drtshock.playervaults.vaultmanagement.VaultManager;
-import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
 
@@ -36,43 +33,31 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.logging.Level;
 
 public class XVaultsConverter implements Converter {
 
     @SuppressWarnings("unchecked")
     @Override
-    public int run(CommandSender initiator) {
-        PlayerVaults plugin = PlayerVaults.getInstance();
-        VaultManager vaultManager = VaultManager.getInstance();
-
+    public int run(CommandSender initiator, ConversionSink sink) {
         Path xvaultsFolder = PlayerVaults.getInstance().getDataFolder().getParentFile().toPath().resolve("XVaults");
 
-        Set<String> uuids = new HashSet<>();
+        int count = 0;
 
         for (int v = 1; v <= 10; v++) {
             Path file = xvaultsFolder.resolve("vault_" + v + "_data.yml");
             if (Files.exists(file)) {
                 YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file.toFile());
                 int curVault = v;
-                yaml.getKeys(false).forEach(k -> {
-                    try {
-                        ItemStack[] items = ((List<?>) yaml.get(k)).toArray(new ItemStack[0]);
-                        Inventory inventory = Bukkit.createInventory(null, items.length % 9 == 0 ? items.length : (6 * 9), "Converting!");
-                        inventory.setContents(items);
-                        vaultManager.saveVault(inventory, k, curVault);
-                        uuids.add(k);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                });
+                for (String k : yaml.getKeys(false)) {
+                    sink.accept(k, curVault, () -> ((List<?>) yaml.get(k)).toArray(new ItemStack[0]));
+                    count++;
+                }
             }
         }
 
-        return uuids.size();
+        return count;
     }
 
     @Override
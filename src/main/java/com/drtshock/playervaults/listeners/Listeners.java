@@ -21,12 +21,13 @@ package com.drtshock.playervaults.listeners;
 import com.drtshock.playervaults.PlayerVaults;
 import com.drtshock.playervaults.config.file.Translation;
 import com.drtshock.playervaults.events.BlacklistedItemEvent;
+import com.drtshock.playervaults.util.BlockedItemRules;
 import com.drtshock.playervaults.util.Permission;
 import com.drtshock.playervaults.vaultmanagement.VaultHolder;
+import com.drtshock.playervaults.vaultmanagement.VaultSelector;
 import com.drtshock.playervaults.vaultmanagement.VaultManager;
 import com.drtshock.playervaults.vaultmanagement.VaultViewInfo;
 import org.bukkit.Bukkit;
-import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
@@ -41,14 +42,9 @@ import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 public class Listeners implements Listener {
@@ -79,7 +75,7 @@ public class Listeners implements Listener {
             PlayerVaults.debug(inventory.getType() + " " + inventory.getClass().getSimpleName());
             if (inventory.getViewers().size() <= 1) {
                 PlayerVaults.debug("Saving!");
-                vaultManager.saveVault(inv, info.getVaultName(), info.getNumber());
+                vaultManager.saveVault(inv, info.getVaultName(), info.getNumber(), inventory.getHolder() instanceof VaultHolder holder ? holder : null);
                 plugin.getOpenInventories().remove(info.toString());
             } else {
                 if (badDay) {
@@ -135,14 +131,19 @@ public class Listeners implements Listener {
 
         Player player = (Player) event.getWhoClicked();
 
+        if (event.getView().getTopInventory().getHolder() instanceof VaultSelector selector) {
+            event.setCancelled(true);
+            if (event.getClickedInventory() == event.getView().getTopInventory()) {
+                PlayerVaults.scheduler().runAtEntity(player, task -> selector.click(player, event.getRawSlot()));
+            }
+            return;
+        }
+
         Inventory clickedInventory = event.getClickedInventory();
         if (clickedInventory != null) {
             VaultViewInfo info = PlayerVaults.getInstance().getInVault().get(player.getUniqueId().toString());
             if (info != null) {
-                int num = info.getNumber();
-                String inventoryTitle = event.getView().getTitle();
-                String title = this.plugin.getVaultTitle(String.valueOf(num));
-                if (inventoryTitle.equalsIgnoreCase(title)) {
+                if (this.isViewingVault(event.getView(), info)) {
                     ItemStack[] items = new ItemStack[2];
                     items[0] = event.getCurrentItem();
                     if (event.getHotbarButton() > -1 && event.getWhoClicked().getInventory().getItem(event.getHotbarButton()) != null) {
@@ -152,7 +153,7 @@ public class Listeners implements Listener {
                         items[1] = event.getWhoClicked().getInventory().getItemInOffHand();
                     }
 
-                    if (!player.hasPermission(Permission.BYPASS_BLOCKED_ITEMS)) {
+                    if (!this.plugin.getBlockedItemRules().isEmpty() && !player.hasPermission(Permission.BYPASS_BLOCKED_ITEMS)) {
                         for (ItemStack item : items) {
                             if (item == null) {
                                 continue;
@@ -176,15 +177,17 @@ public class Listeners implements Listener {
 
         Player player = (Player) event.getWhoClicked();
 
+        if (event.getView().getTopInventory().getHolder() instanceof VaultSelector) {
+            event.setCancelled(true);
+            return;
+        }
+
         Inventory clickedInventory = event.getInventory();
         if (clickedInventory != null) {
             VaultViewInfo info = PlayerVaults.getInstance().getInVault().get(player.getUniqueId().toString());
             if (info != null) {
-                int num = info.getNumber();
-                String inventoryTitle = event.getView().getTitle();
-                String title = this.plugin.getVaultTitle(String.valueOf(num));
-                if ((inventoryTitle != null && inventoryTitle.equalsIgnoreCase(title)) && event.getNewItems() != null) {
-                    if (!player.hasPermission(Permission.BYPASS_BLOCKED_ITEMS)) {
+                if (this.isViewingVault(event.getView(), info) && event.getNewItems() != null) {
+                    if (!this.plugin.getBlockedItemRules().isEmpty() && !player.hasPermission(Permission.BYPASS_BLOCKED_ITEMS)) {
                         for (ItemStack item : event.getNewItems().values()) {
                             if (this.isBlocked(player, item, info)) {
                                 event.setCancelled(true);
@@ -197,34 +200,28 @@ public class Listeners implements Listener {
         }
     }
 
+    private boolean isViewingVault(InventoryView view, VaultViewInfo info) {
+        return view.getTopInventory().getHolder() instanceof VaultHolder holder && holder.getVaultNumber() == info.getNumber();
+    }
+
     private boolean isBlocked(Player player, ItemStack item, VaultViewInfo info) {
-        List<BlacklistedItemEvent.Reason> reasons = new ArrayList<>();
-        Map<BlacklistedItemEvent.Reason, Translation.TL.Builder> responses = new HashMap<>();
-        if (PlayerVaults.getInstance().isBlockWithModelData() && ((item.getItemMeta() instanceof ItemMeta i) && i.hasCustomModelData())) {
-            reasons.add(BlacklistedItemEvent.Reason.HAS_MODEL_DATA);
-            responses.put(BlacklistedItemEvent.Reason.HAS_MODEL_DATA, this.plugin.getTL().blockedItemWithModelData().title());
-        }
-        if (PlayerVaults.getInstance().isBlockWithoutModelData() && !((item.getItemMeta() instanceof ItemMeta i) && i.hasCustomModelData())) {
-            reasons.add(BlacklistedItemEvent.Reason.HAS_NO_MODEL_DATA);
-            responses.put(BlacklistedItemEvent.Reason.HAS_NO_MODEL_DATA, this.plugin.getTL().blockedItemWithoutModelData().title());
+        int blocked = this.plugin.getBlockedItemRules().check(item);
+        if (blocked == 0) {
+            return false;
         }
-        if (PlayerVaults.getInstance().isBlockedMaterial(item.getType())) {
-            reasons.add(BlacklistedItemEvent.Reason.TYPE);
-            responses.put(BlacklistedItemEvent.Reason.TYPE, this.plugin.getTL().blockedItem().title().with("item", item.getType().name()));
-        }
-        Set<Enchantment> ench = PlayerVaults.getInstance().isEnchantmentBlocked(item);
-        if (!ench.isEmpty()) {
-            reasons.add(BlacklistedItemEvent.Reason.ENCHANTMENT);
-            responses.put(BlacklistedItemEvent.Reason.ENCHANTMENT, this.plugin.getTL().blockedItemWithEnchantments().title());
-        }
-        if (!reasons.isEmpty()) {
-            BlacklistedItemEvent event = new BlacklistedItemEvent(player, item, reasons, info.getVaultName(), info.getNumber());
-            Bukkit.getPluginManager().callEvent(event);
-            if (!event.isCancelled()) {
-                responses.get(event.getReasons().getFirst()).send(player);
-                return true;
-            }
+        BlacklistedItemEvent event = new BlacklistedItemEvent(player, item, BlockedItemRules.reasons(blocked), info.getVaultName(), info.getNumber());
+        Bukkit.getPluginManager().callEvent(event);
+        if (event.isCancelled()) {
+            return false;
         }
-        return false;
+        // Only build the message once we know it's being sent.
+        Translation.TL.Builder response = switch (event.getReasons().getFirst()) {
+            case HAS_MODEL_DATA -> this.plugin.getTL().blockedItemWithModelData().title();
+            case HAS_NO_MODEL_DATA -> this.plugin.getTL().blockedItemWithoutModelData().title();
+            case TYPE -> this.plugin.getTL().blockedItem().title().with("item", item.getType().name());
+            case ENCHANTMENT -> this.plugin.getTL().blockedItemWithEnchantments().title();
+        };
+        response.send(player);
+        return true;
     }
 }
@@ -19,6 +19,7 @@
 package com.drtshock.playervaults.listeners;
 
 import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.stats.VaultEvents;
 import com.drtshock.playervaults.util.Permission;
 import com.drtshock.playervaults.vaultmanagement.VaultOperations;
 import com.drtshock.playervaults.vaultmanagement.VaultViewInfo;
@@ -104,7 +105,15 @@ public class SignListener implements Listener {
                 int x = l.getBlockX();
                 int y = l.getBlockY();
                 int z = l.getBlockZ();
-                if (plugin.getSigns().getKeys(false).contains(world + ";;" + x + ";;" + y + ";;" + z)) {
+                VaultEvents.SignLookup lookup = new VaultEvents.SignLookup();
+                lookup.begin();
+                boolean found = plugin.getSigns().getKeys(false).contains(world + ";;" + x + ";;" + y + ";;" + z);
+                if (lookup.shouldCommit()) {
+                    lookup.location = world + ";;" + x + ";;" + y + ";;" + z;
+                    lookup.found = found;
+                    lookup.commit();
+                }
+                if (found) {
                     PlayerVaults.debug("Player " + player.getName() + " clicked sign at world(" + x + "," + y + "," + z + ")");
                     if (PlayerVaults.getInstance().getInVault().containsKey(player.getUniqueId().toString())) {
                         // don't let them open another vault.
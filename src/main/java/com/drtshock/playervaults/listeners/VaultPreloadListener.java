@@ -18,11 +18,14 @@
 
 package com.drtshock.playervaults.listeners;
 
+import com.drtshock.playervaults.Conversion;
 import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.tasks.JobScheduler;
 import com.drtshock.playervaults.vaultmanagement.VaultManager;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
@@ -32,15 +35,23 @@ public class VaultPreloadListener implements Listener {
 
     final VaultManager vm = VaultManager.getInstance();
 
+    // Off the main thread, so the player's own vaults never need converting while they play
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            Conversion.awaitHolder(event.getUniqueId().toString());
+        }
+    }
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent event) {
         PlayerVaults.getInstance().updateNotification(event.getPlayer());
         final UUID uuid = event.getPlayer().getUniqueId();
-        PlayerVaults.scheduler().runAsync(task -> vm.cachePlayerVaultFile(uuid.toString()));
+        PlayerVaults.getInstance().getJobs().submit("prefetch " + event.getPlayer().getName(), JobScheduler.Priority.PREFETCH, job -> vm.cachePlayerVaultFile(uuid.toString()));
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent event) {
-        vm.removeCachedPlayerVaultFile(event.getPlayer().getUniqueId().toString());
+        vm.parkPlayerVaultFile(event.getPlayer().getUniqueId().toString());
     }
 }
@@ -1,14 +1,18 @@
 package com.drtshock.playervaults.placeholder;
 
+import com.drtshock.playervaults.PlayerVaults;
 import com.drtshock.playervaults.vaultmanagement.VaultOperations;
+import com.drtshock.playervaults.vaultmanagement.VaultSummary;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.entity.Player;
 
 public class Papi extends PlaceholderExpansion {
     private final String version;
+    private final PlaceholderCache cache;
 
-    public Papi(String version) {
+    public Papi(String version, PlaceholderCache cache) {
         this.version = version;
+        this.cache = cache;
     }
 
     @Override
@@ -31,8 +35,40 @@ public class Papi extends PlaceholderExpansion {
         if (player == null) {
             return null;
         }
-        if (params.equals("vaults_max_by_perms")) {
-            return String.valueOf(VaultOperations.countVaults(player));
+        PlaceholderCache.Snapshot snapshot = this.cache.get(player.getUniqueId());
+        switch (params) {
+            case "vaults_max_by_perms":
+                return String.valueOf(VaultOperations.countVaults(player));
+            case "vaults_owned":
+                return String.valueOf(snapshot.owned());
+            case "slots_used":
+                return String.valueOf(snapshot.slotsUsed());
+            case "items_total":
+                return String.valueOf(snapshot.items());
+            case "last_opened_vault":
+                return String.valueOf(snapshot.lastOpened());
+        }
+        // vault_<number>_<slots_used|slots_free|items>
+        if (params.startsWith("vault_")) {
+            int split = params.indexOf('_', 6);
+            if (split < 0) {
+                return null;
+            }
+            int number;
+            try {
+                number = Integer.parseInt(params.substring(6, split));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            VaultSummary summary = snapshot.vaults().get(number);
+            switch (params.substring(split + 1)) {
+                case "slots_used":
+                    return String.valueOf(summary == null ? 0 : summary.slotsUsed());
+                case "slots_free":
+                    return String.valueOf(summary == null ? PlayerVaults.getInstance().getDefaultVaultSize() : summary.slotsFree());
+                case "items":
+                    return String.valueOf(summary == null ? 0 : summary.items());
+            }
         }
         return null;
     }
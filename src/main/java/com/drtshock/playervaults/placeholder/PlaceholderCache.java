@@ -0,0 +1,99 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.placeholder;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.vaultmanagement.VaultManager;
+import com.drtshock.playervaults.vaultmanagement.VaultSummary;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Precomputed vault summaries for players whose placeholders are requested, so placeholder requests never touch
+ * storage. A request for a missing or stale snapshot is answered from what is there and refreshes it asynchronously.
+ * The vault limit isn't kept here, it comes from {@link com.drtshock.playervaults.vaultmanagement.VaultOperations#countVaults(org.bukkit.entity.Player)}.
+ */
+public class PlaceholderCache {
+    private static final int secondsToRefresh = 5;
+
+    /**
+     * Everything placeholders can show for one player, apart from the vault limit.
+     *
+     * @param owned number of vaults stored
+     * @param slotsUsed slots used across all vaults
+     * @param items total amount of items across all vaults
+     * @param lastOpened number of the vault opened most recently, 0 if unknown
+     * @param vaults summaries keyed by vault number
+     * @param time when the snapshot was taken
+     */
+    public record Snapshot(int owned, int slotsUsed, int items, int lastOpened, Map<Integer, VaultSummary> vaults, long time) {
+        static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, Map.of(), 0);
+    }
+
+    private final Map<UUID, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Set<UUID> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Gets the latest snapshot for a player, refreshing it in the background if it's missing or stale.
+     *
+     * @param uuid player's UUID
+     * @return snapshot, empty until the player's first refresh
+     */
+    public Snapshot get(UUID uuid) {
+        Snapshot snapshot = this.snapshots.getOrDefault(uuid, Snapshot.EMPTY);
+        if (System.currentTimeMillis() - snapshot.time() > TimeUnit.SECONDS.toMillis(secondsToRefresh) && this.refreshing.add(uuid)) {
+            PlayerVaults.scheduler().runAsync(task -> {
+                try {
+                    this.refresh(uuid);
+                } finally {
+                    this.refreshing.remove(uuid);
+                }
+            });
+        }
+        return snapshot;
+    }
+
+    private void refresh(UUID uuid) {
+        Map<Integer, VaultSummary> vaults = Map.copyOf(VaultManager.getInstance().getSummaries(uuid.toString()));
+        int slotsUsed = 0;
+        int items = 0;
+        int lastOpened = 0;
+        long lastOpenedTime = 0;
+        for (Map.Entry<Integer, VaultSummary> entry : vaults.entrySet()) {
+            VaultSummary summary = entry.getValue();
+            slotsUsed += summary.slotsUsed();
+            items += summary.items();
+            if (summary.lastOpened() > lastOpenedTime) {
+                lastOpenedTime = summary.lastOpened();
+                lastOpened = entry.getKey();
+            }
+        }
+        Snapshot snapshot = new Snapshot(vaults.size(), slotsUsed, items, lastOpened, vaults, System.currentTimeMillis());
+        this.snapshots.put(uuid, snapshot);
+        PlayerVaults.scheduler().runLater(() -> {
+            if (this.snapshots.get(uuid) == snapshot) {
+                this.snapshots.remove(uuid); // Nobody asked for this player since, they're probably gone
+            }
+        }, 20L * secondsToRefresh * 4);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.stats;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records which vaults are accessed, when, and how large they are, for replaying real load against a test dataset.
+ * <p>
+ * A trace is a gzip compressed file starting with the magic bytes {@code PVT1}, followed by records of the time
+ * since recording started in milliseconds, the operation, the holder key, the vault number (0 for whole files) and
+ * the size in bytes. Recording costs a single volatile read while no trace is running.
+ */
+public final class AccessTrace {
+    private static final byte[] MAGIC = "PVT1".getBytes(StandardCharsets.US_ASCII);
+
+    public enum Op {
+        LOAD,
+        OPEN,
+        SAVE,
+        DELETE
+    }
+
+    public record Entry(long time, Op op, String holder, int vault, int bytes) {
+    }
+
+    /**
+     * Outcome of a finished recording.
+     *
+     * @param records records written
+     * @param dropped records dropped because the writer fell behind
+     */
+    public record Result(long records, long dropped) {
+    }
+
+    // Queued after the last entry to stop the writer
+    private static final Entry END = new Entry(-1, null, null, 0, 0);
+    private static final int QUEUE_CAPACITY = 1 << 16;
+
+    private static volatile AccessTrace active;
+
+    private final Path file;
+    private final DataOutputStream out;
+    private final long start = System.currentTimeMillis();
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private long records;
+    private volatile IOException failure;
+
+    private AccessTrace(Path file) throws IOException {
+        this.file = file;
+        this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file), 1 << 16)));
+        try {
+            this.out.write(MAGIC);
+        } catch (IOException e) {
+            this.out.close();
+            throw e;
+        }
+        this.writer = new Thread(this::drain, "PlayerVaults Access Trace");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Starts recording to a file.
+     *
+     * @param file file to write
+     * @throws IOException if the file can't be created
+     * @throws IllegalStateException if a trace is already recording
+     */
+    public static synchronized void start(Path file) throws IOException {
+        if (active != null) {
+            throw new IllegalStateException("Already recording to " + active.file.getFileName());
+        }
+        Files.createDirectories(file.getParent());
+        AccessTrace trace = new AccessTrace(file);
+        trace.writer.start();
+        active = trace;
+    }
+
+    /**
+     * Stops recording, waiting for queued records to be written.
+     *
+     * @return records written and dropped, or null if nothing was recording
+     * @throws IOException if the file couldn't be written or finished
+     */
+    public static synchronized Result stop() throws IOException {
+        AccessTrace trace = active;
+        if (trace == null) {
+            return null;
+        }
+        active = null;
+        try {
+            trace.queue.put(END);
+            trace.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while finishing " + trace.file.getFileName(), e);
+        }
+        if (trace.failure != null) {
+            throw new IOException("Trace was cut short after " + trace.records + " records", trace.failure);
+        }
+        return new Result(trace.records, trace.dropped.sum());
+    }
+
+    public static boolean isRecording() {
+        return active != null;
+    }
+
+    /**
+     * Records an access if a trace is running. The record is handed to the trace's writer thread, so the caller
+     * never compresses or touches the disk, and records are dropped rather than wait when the writer falls behind.
+     *
+     * @param op operation
+     * @param holder holder key
+     * @param vault vault number, 0 for a whole file
+     * @param bytes size of the data read or written
+     */
+    public static void record(Op op, String holder, int vault, long bytes) {
+        AccessTrace trace = active;
+        if (trace == null || trace.failure != null) {
+            return;
+        }
+        if (!trace.queue.offer(new Entry(System.currentTimeMillis() - trace.start, op, holder, vault, (int) Math.min(Integer.MAX_VALUE, bytes)))) {
+            trace.dropped.increment();
+        }
+    }
+
+    private void drain() {
+        try (DataOutputStream out = this.out) {
+            while (true) {
+                Entry entry = this.queue.take();
+                if (entry == END) {
+                    break;
+                }
+                out.writeInt((int) entry.time());
+                out.writeByte(entry.op().ordinal());
+                out.writeUTF(entry.holder());
+                out.writeInt(entry.vault());
+                out.writeInt(entry.bytes());
+                this.records++;
+            }
+        } catch (IOException e) {
+            // Recording is best effort, the trace is simply cut short and the failure reported on stop
+            this.failure = e;
+            this.queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads a whole trace.
+     *
+     * @param file trace file
+     * @return entries in recorded order
+     * @throws IOException if the file can't be read or isn't a trace
+     */
+    public static List<Entry> read(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), 1 << 16)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file.getFileName() + " is not an access trace");
+            }
+            Op[] ops = Op.values();
+            while (true) {
+                int time;
+                try {
+                    time = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int op = in.readUnsignedByte();
+                if (op >= ops.length) {
+                    throw new IOException("Unknown operation " + op + " in " + file.getFileName());
+                }
+                entries.add(new Entry(time, ops[op], in.readUTF(), in.readInt(), in.readInt()));
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.stats;
+
+import com.drtshock.playervaults.PlayerVaults;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+
+/**
+ * Publishes {@link VaultStats} as JMX MBeans, under {@code com.drtshock.playervaults}, and as a Prometheus text file
+ * that a node exporter's textfile collector can pick up.
+ */
+public class StatsExporter {
+    private static final String DOMAIN = "com.drtshock.playervaults";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    public interface TimerMXBean {
+        String getDescription();
+
+        long getCount();
+
+        double getMeanMillis();
+
+        double getP50Millis();
+
+        double getP99Millis();
+
+        double getMaxMillis();
+    }
+
+    public interface CounterMXBean {
+        String getDescription();
+
+        long getValue();
+    }
+
+    private record TimerBean(VaultStats.Timer timer) implements TimerMXBean {
+        @Override
+        public String getDescription() {
+            return this.timer.getDescription();
+        }
+
+        @Override
+        public long getCount() {
+            return this.timer.getHistogram().getCount();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return this.timer.getHistogram().getMean() / 1_000_000D;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return this.timer.getHistogram().getPercentile(0.5) / 1_000_000D;
+        }
+
+        @Override
+        public double getP99Millis() {
+            return this.timer.getHistogram().getPercentile(0.99) / 1_000_000D;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return this.timer.getHistogram().getMax() / 1_000_000D;
+        }
+    }
+
+    private record CounterBean(VaultStats.Counter counter) implements CounterMXBean {
+        @Override
+        public String getDescription() {
+            return this.counter.getDescription();
+        }
+
+        @Override
+        public long getValue() {
+            return this.counter.getValue();
+        }
+    }
+
+    private final PlayerVaults plugin;
+    private final Path file;
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    public StatsExporter(PlayerVaults plugin) {
+        this.plugin = plugin;
+        this.file = plugin.getDataFolder().toPath().resolve("stats.prom");
+    }
+
+    /**
+     * Registers the MBeans. Failures are logged, as stats are never worth failing to enable over.
+     */
+    public void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (VaultStats.Timer timer : VaultStats.Timer.values()) {
+                this.register(server, new ObjectName(DOMAIN + ":type=Timer,name=" + timer.getKey()), new TimerBean(timer));
+            }
+            for (VaultStats.Counter counter : VaultStats.Counter.values()) {
+                this.register(server, new ObjectName(DOMAIN + ":type=Counter,name=" + counter.getKey()), new CounterBean(counter));
+            }
+        } catch (Exception e) {
+            this.plugin.getLogger().log(Level.WARNING, "Could not register stats MBeans", e);
+        }
+    }
+
+    private void register(MBeanServer server, ObjectName name, Object bean) throws Exception {
+        // Left behind by a reload
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(bean, name);
+        this.registered.add(name);
+    }
+
+    public void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : this.registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (Exception ignored) {
+                // Already gone
+            }
+        }
+        this.registered.clear();
+    }
+
+    /**
+     * Writes all stats in the Prometheus text format, replacing the previous file atomically.
+     */
+    public void writePrometheus() {
+        StringBuilder out = new StringBuilder();
+        for (VaultStats.Timer timer : VaultStats.Timer.values()) {
+            String name = "playervaults_" + timer.getKey() + "_seconds";
+            Histogram histogram = timer.getHistogram();
+            out.append("# HELP ").append(name).append(' ').append(timer.getDescription()).append('\n');
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                out.append(name).append("{quantile=\"").append(quantile).append("\"} ").append(seconds(histogram.getPercentile(quantile))).append('\n');
+            }
+            out.append(name).append("_sum ").append(seconds(histogram.getSum())).append('\n');
+            out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        }
+        for (VaultStats.Counter counter : VaultStats.Counter.values()) {
+            String name = "playervaults_" + counter.getKey() + "_total";
+            out.append("# HELP ").append(name).append(' ').append(counter.getDescription()).append('\n');
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(counter.getValue()).append('\n');
+        }
+
+        Path temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try {
+            Files.writeString(temp, out, StandardCharsets.UTF_8);
+            Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.WARNING, "Could not write " + this.file.getFileName(), e);
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1_000_000_000D);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for vault operations, so time spent in CardboardBox or SnakeYAML in a recording can be
+ * tied to a holder and vault. Events cost nothing unless a recording enables them.
+ * <p>
+ * Usage follows the usual JFR pattern:
+ * <pre>
+ * VaultEvents.Load event = new VaultEvents.Load();
+ * event.begin();
+ * ...
+ * if (event.shouldCommit()) {
+ *     event.holder = holderKey;
+ *     event.commit();
+ * }
+ * </pre>
+ */
+public final class VaultEvents {
+    private static final String CATEGORY = "PlayerVaults";
+
+    private VaultEvents() {
+    }
+
+    @Name("playervaults.VaultLoad")
+    @Label("Vault File Load")
+    @Description("Reading a holder's vault file from disk")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Load extends Event {
+        @Label("Holder")
+        public String holder;
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("playervaults.VaultDecode")
+    @Label("Vault Decode")
+    @Description("Deserializing the items of one vault")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Decode extends Event {
+        @Label("Holder")
+        public String holder;
+        @Label("Slots")
+        public int slots;
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("playervaults.VaultEncode")
+    @Label("Vault Encode")
+    @Description("Serializing the items of one vault")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Encode extends Event {
+        @Label("Holder")
+        public String holder;
+        @Label("Slots")
+        public int slots;
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("playervaults.VaultSave")
+    @Label("Vault Save")
+    @Description("Writing vaults of one holder to disk")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Save extends Event {
+        @Label("Holder")
+        public String holder;
+        @Label("Vault")
+        @Description("Vault number, or 0 if several vaults were written at once")
+        public int vault;
+        @Label("Vaults")
+        public int vaults;
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("playervaults.VaultLockWait")
+    @Label("Vault Lock Wait")
+    @Description("Waiting for another thread to finish with a vault")
+    @Category(CATEGORY)
+    public static final class LockWait extends Event {
+        @Label("Holder")
+        public String holder;
+        @Label("Vault")
+        public int vault;
+    }
+
+    @Name("playervaults.SignLookup")
+    @Label("Vault Sign Lookup")
+    @Description("Checking whether a clicked sign is a vault sign")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class SignLookup extends Event {
+        @Label("Location")
+        public String location;
+        @Label("Found")
+        public boolean found;
+    }
+
+    @Name("playervaults.ConverterBatch")
+    @Label("Converter Batch")
+    @Description("Writing a batch of converted vaults for one holder")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class ConverterBatch extends Event {
+        @Label("Converter")
+        public String converter;
+        @Label("Holder")
+        public String holder;
+        @Label("Vaults")
+        public int vaults;
+        @Label("Slots")
+        public int slots;
+    }
+}
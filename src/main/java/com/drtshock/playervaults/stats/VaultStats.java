@@ -0,0 +1,138 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.stats;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on timings and counters for vault operations.
+ * <p>
+ * Recording is a few atomic increments, cheap enough to leave in every hot path:
+ * <pre>
+ * long start = VaultStats.start();
+ * ...
+ * VaultStats.record(VaultStats.Timer.DECODE, start);
+ * </pre>
+ */
+public final class VaultStats {
+    /**
+     * Timed operations, recorded in nanoseconds.
+     */
+    public enum Timer {
+        OPEN("Opening a vault, from the lock to the loaded inventory"),
+        LOAD("Reading a holder's file from disk"),
+        DECODE("Deserializing one vault's items"),
+        ENCODE("Serializing one vault's items"),
+        SAVE("Writing a holder's file to disk"),
+        DELETE("Deleting a vault or all of a holder's vaults"),
+        LOCK_WAIT("Waiting for a vault's lock"),
+        MAILBOX_WAIT("Waiting for a holder's earlier storage operations");
+
+        private final String description;
+        private final Histogram histogram = new Histogram();
+
+        Timer(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return this.description;
+        }
+
+        public String getKey() {
+            return this.name().toLowerCase(Locale.ROOT);
+        }
+
+        public Histogram getHistogram() {
+            return this.histogram;
+        }
+    }
+
+    /**
+     * Counted events and amounts.
+     */
+    public enum Counter {
+        CACHE_HIT("Holder files found in the cache"),
+        CACHE_MISS("Holder files not found in the cache"),
+        BYTES_READ("Bytes of holder files read"),
+        BYTES_WRITTEN("Bytes of holder files written"),
+        SAVE_CONFLICT("Saves made over a newer version of a vault");
+
+        private final String description;
+        private final LongAdder value = new LongAdder();
+
+        Counter(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return this.description;
+        }
+
+        public String getKey() {
+            return this.name().toLowerCase(Locale.ROOT);
+        }
+
+        public long getValue() {
+            return this.value.sum();
+        }
+    }
+
+    private VaultStats() {
+    }
+
+    /**
+     * Gets the start time of an operation, for passing to {@link #record(Timer, long)}.
+     *
+     * @return current time in nanoseconds
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records how long an operation took.
+     *
+     * @param timer operation
+     * @param start value of {@link #start()} when the operation began
+     */
+    public static void record(Timer timer, long start) {
+        timer.histogram.record(System.nanoTime() - start);
+    }
+
+    public static void increment(Counter counter) {
+        counter.value.increment();
+    }
+
+    public static void add(Counter counter, long amount) {
+        counter.value.add(amount);
+    }
+
+    /**
+     * Formats a nanosecond value as milliseconds.
+     *
+     * @param nanos nanoseconds
+     * @return milliseconds with up to three decimals
+     */
+    public static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.tasks;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.stats.Histogram;
+import com.drtshock.playervaults.stats.VaultStats;
+import com.drtshock.playervaults.util.BlockedItemRules;
+import com.drtshock.playervaults.vaultmanagement.CardboardBoxSerialization;
+import com.drtshock.playervaults.vaultmanagement.VaultManager;
+import com.drtshock.playervaults.vaultmanagement.VaultOperations;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Micro benchmarks of the plugin's hot paths, run on the live server so item serialization uses the server's real
+ * implementation. Results are written to {@code bench/} so runs before and after an upgrade can be compared.
+ * <p>
+ * Each scenario is warmed up, then timed one operation at a time into a {@link Histogram}.
+ */
+public class Benchmark {
+    private static final int WARMUP_DIVISOR = 5;
+
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    public record Result(String scenario, long operations, double mean, long p50, long p99, long max) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-28s %8d ops  mean %10s ms  p50 %10s ms  p99 %10s ms  max %10s ms", this.scenario, this.operations,
+                    VaultStats.millis(this.mean), VaultStats.millis(this.p50), VaultStats.millis(this.p99), VaultStats.millis(this.max));
+        }
+    }
+
+    private final PlayerVaults plugin;
+    private final int iterations;
+    private volatile Object sink;
+
+    public Benchmark(PlayerVaults plugin, int iterations) {
+        this.plugin = plugin;
+        this.iterations = Math.max(1, iterations);
+    }
+
+    /**
+     * Runs every scenario. Should only be run asynchronously.
+     *
+     * @param progress receives each result as it completes
+     * @return path of the written results
+     * @throws IOException if the results or the holder files can't be written
+     */
+    public Path run(Consumer<Result> progress) throws IOException {
+        Path folder = this.plugin.getDataFolder().toPath().resolve("bench");
+        Files.createDirectories(folder);
+        List<Result> results = new ArrayList<>();
+        Consumer<Result> report = result -> {
+            results.add(result);
+            progress.accept(result);
+        };
+
+        Map<String, ItemStack[]> vaults = new LinkedHashMap<>();
+        Random random = new Random(0);
+        vaults.put("empty", SampleItems.vault(SampleItems.Kind.EMPTY, 54, 1, random));
+        vaults.put("stacked", SampleItems.vault(SampleItems.Kind.STACKED, 54, 1, random));
+        vaults.put("nbt-heavy", SampleItems.vault(SampleItems.Kind.NBT_HEAVY, 54, 1, random));
+
+        for (Map.Entry<String, ItemStack[]> vault : vaults.entrySet()) {
+            ItemStack[] contents = vault.getValue();
+            String serialized = CardboardBoxSerialization.toStorage(contents, "bench");
+            report.accept(this.measure("encode " + vault.getKey(), () -> this.sink = CardboardBoxSerialization.toStorage(contents, "bench")));
+            report.accept(this.measure("decode " + vault.getKey(), () -> this.sink = CardboardBoxSerialization.fromStorage(serialized, "bench")));
+        }
+
+        // A holder with a few full vaults, saved and loaded by a sandboxed manager the same way live holders are
+        Path holders = folder.resolve("holders");
+        Files.createDirectories(holders);
+        VaultManager storage = VaultManager.sandbox(this.plugin, holders.toFile());
+        String holder = new UUID(0, 54).toString();
+        Map<Integer, ItemStack[]> full = new HashMap<>();
+        for (int number = 1; number <= 6; number++) {
+            full.put(number, number % 2 == 0 ? vaults.get("nbt-heavy") : vaults.get("stacked"));
+        }
+        try {
+            storage.saveVaults(holder, full);
+            storage.cachePlayerVaultFile(holder);
+            ItemStack[] saved = vaults.get("stacked");
+            report.accept(this.measure("holder save (one vault)", () -> storage.saveVaults(holder, Map.of(1, saved))));
+            report.accept(this.measure("holder load", () -> this.sink = storage.loadPlayerVaultFile(holder, false)));
+        } finally {
+            storage.removeCachedPlayerVaultFile(holder);
+            Files.deleteIfExists(holders.resolve(holder + ".yml"));
+            Files.deleteIfExists(holders);
+        }
+
+        YamlConfiguration signs = new YamlConfiguration();
+        for (int i = 0; i < 1000; i++) {
+            signs.set("world;;" + i + ";;64;;" + (i * 7) + ".owner", "bench");
+        }
+        report.accept(this.measure("sign lookup", () -> this.sink = signs.getKeys(false).contains("world;;999;;64;;6993")));
+
+        CommandSender subject = Bukkit.getOnlinePlayers().isEmpty() ? Bukkit.getConsoleSender() : Bukkit.getOnlinePlayers().iterator().next();
+        int highest = this.plugin.getMaxVaultAmountPermTest();
+        report.accept(this.measure("permission check (" + subject.getName() + ")", () -> this.sink = VaultOperations.checkPerms(subject, highest)));
+
+        BlockedItemRules rules = this.plugin.getBlockedItemRules();
+        ItemStack[] checked = vaults.get("nbt-heavy");
+        report.accept(this.measure("blocked item check", () -> {
+            int mask = 0;
+            for (ItemStack item : checked) {
+                if (item != null) {
+                    mask |= rules.check(item);
+                }
+            }
+            this.sink = mask;
+        }));
+
+        Path output = folder.resolve("bench-" + System.currentTimeMillis() + ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write(this.plugin.getDescription().getVersion() + " on " + Bukkit.getVersion() + ", " + this.iterations + " iterations");
+            writer.newLine();
+            for (Result result : results) {
+                writer.write(result.toString());
+                writer.newLine();
+            }
+        }
+        return output;
+    }
+
+    private Result measure(String scenario, Operation operation) {
+        Histogram histogram = new Histogram();
+        try {
+            for (int i = 0; i < this.iterations / WARMUP_DIVISOR; i++) {
+                operation.run();
+            }
+            for (int i = 0; i < this.iterations; i++) {
+                long start = System.nanoTime();
+                operation.run();
+                histogram.record(System.nanoTime() - start);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Benchmark " + scenario + " failed", e);
+        }
+        return new Result(scenario, histogram.getCount(), histogram.getMean(), histogram.getPercentile(0.5), histogram.getPercentile(0.99), histogram.getMax());
+    }
+}
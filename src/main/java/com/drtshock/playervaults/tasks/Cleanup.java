@@ -19,10 +19,12 @@
 package com.drtshock.playervaults.tasks;
 
 import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.vaultmanagement.VaultManager;
 
 import java.io.File;
+import java.util.concurrent.CompletionException;
 
-public class Cleanup implements Runnable {
+public class Cleanup implements JobScheduler.Body {
 
     private final long diff;
 
@@ -31,7 +33,7 @@ public class Cleanup implements Runnable {
     }
 
     @Override
-    public void run() {
+    public void run(JobScheduler.Job job) {
         File directory = PlayerVaults.getInstance().getVaultData();
         if (!directory.exists()) {
             // folder doesn't exist, don't run
@@ -39,13 +41,23 @@ public class Cleanup implements Runnable {
         }
 
         long time = System.currentTimeMillis();
+        int deleted = 0;
         for (File file : directory.listFiles()) {
-            if (file.isDirectory()) {
+            if (file.isDirectory() || !file.getName().endsWith(".yml")) {
                 continue;
             }
             if (time - file.lastModified() > diff) {
+                job.checkpoint();
+                job.transfer(file.length());
                 PlayerVaults.getInstance().getLogger().info("Deleting vault file (cleanup): " + file.getName());
-                file.delete();
+                // Through the vault manager, so its caches, summaries and the search index forget the holder too
+                String holder = file.getName().substring(0, file.getName().length() - ".yml".length());
+                try {
+                    VaultManager.getInstance().deleteAllVaults(holder).join();
+                } catch (CompletionException e) {
+                    continue;
+                }
+                job.setProgress(++deleted + " files deleted");
             }
         }
     }
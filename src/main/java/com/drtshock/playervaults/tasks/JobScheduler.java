@@ -0,0 +1,370 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.tasks;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.config.file.Config;
+import com.drtshock.playervaults.util.IoBudget;
+import com.drtshock.playervaults.vaultmanagement.VaultManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Runs background jobs, like purges, conversions and exports, so they don't compete with players for disk and CPU.
+ * <p>
+ * Jobs call {@link Job#checkpoint()} between units of work. There they wait while paused, while a job of a higher
+ * {@link Priority} is running, and, for a while, when the server is lagging or live saves are being written. Each job
+ * gets its own {@link IoBudget} and a number of worker threads set by the configured CPU share.
+ */
+public class JobScheduler {
+    private static final ThreadLocal<Job> CURRENT = new ThreadLocal<>();
+    private static final long WAIT_STEP = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long BACKOFF_STEP = TimeUnit.MILLISECONDS.toNanos(25);
+    // Longest a job waits for the server to catch up before doing one more unit of work anyway
+    private static final long MAX_BACKOFF = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final double TICK_MILLIS = 50;
+    // Without the real tick time, ticks this much later than scheduled count as lag
+    private static final double LATE_MILLIS = 5;
+    private static final MethodHandle AVERAGE_TICK_TIME;
+
+    static {
+        MethodHandle handle = null;
+        try {
+            // Paper measures how long ticks take, Spigot only lets us see how far apart they are
+            handle = MethodHandles.publicLookup().findVirtual(Server.class, "getAverageTickTime", MethodType.methodType(double.class));
+        } catch (NoSuchMethodException | IllegalAccessException ignored) {
+        }
+        AVERAGE_TICK_TIME = handle;
+    }
+
+    /**
+     * Job priorities, highest first. Live saves aren't jobs, they come before all of these. Prefetches are short and
+     * frequent, so they aren't listed in /pvjobs and don't hold back other jobs.
+     */
+    public enum Priority {
+        PREFETCH,
+        BACKUP,
+        MAINTENANCE;
+
+        public String getKey() {
+            return this.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public enum State {
+        RUNNING,
+        PAUSED,
+        CANCELLED
+    }
+
+    @FunctionalInterface
+    public interface Body {
+        void run(Job job) throws Exception;
+    }
+
+    /**
+     * A running job, handed to its body to report progress and wait for its turn.
+     */
+    public final class Job {
+        private final int id;
+        private final String name;
+        private final Priority priority;
+        private final IoBudget budget;
+        private final int threads;
+        private final long started = System.currentTimeMillis();
+        private final LongAdder bytes = new LongAdder();
+        private volatile State state = State.RUNNING;
+        private volatile boolean throttled;
+        private volatile String progress = "";
+
+        private Job(int id, String name, Priority priority, IoBudget budget, int threads) {
+            this.id = id;
+            this.name = name;
+            this.priority = priority;
+            this.budget = budget;
+            this.threads = threads;
+        }
+
+        /**
+         * Waits until this job may continue.
+         *
+         * @throws CancellationException if the job was cancelled
+         */
+        public void checkpoint() {
+            long backoff = 0;
+            while (true) {
+                if (this.state == State.CANCELLED) {
+                    throw new CancellationException(this.name + " was cancelled");
+                }
+                boolean pressure = backoff < MAX_BACKOFF && JobScheduler.this.underPressure(this.priority);
+                if (this.state != State.PAUSED && !JobScheduler.this.outranked(this) && !pressure) {
+                    this.throttled = false;
+                    return;
+                }
+                this.throttled = pressure;
+                long step = pressure ? BACKOFF_STEP : WAIT_STEP;
+                if (pressure) {
+                    backoff += step;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(step);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException(this.name + " was interrupted");
+                }
+            }
+        }
+
+        /**
+         * Takes bytes about to be read or written from this job's disk budget.
+         *
+         * @param bytes bytes
+         */
+        public void transfer(long bytes) {
+            this.budget.acquire(bytes);
+            this.bytes.add(bytes);
+        }
+
+        /**
+         * Creates a pool with as many workers as this job may use. Work run on it counts as part of this job.
+         *
+         * @param name thread name
+         * @return pool, to be shut down by the job
+         */
+        public ExecutorService newPool(String name) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(this.threads, runnable -> {
+                Thread thread = new Thread(() -> {
+                    CURRENT.set(this);
+                    runnable.run();
+                }, "PlayerVaults " + name + " #" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        public void pause() {
+            if (this.state == State.RUNNING) {
+                this.state = State.PAUSED;
+            }
+        }
+
+        public void resume() {
+            if (this.state == State.PAUSED) {
+                this.state = State.RUNNING;
+            }
+        }
+
+        public void cancel() {
+            this.state = State.CANCELLED;
+        }
+
+        public boolean isCancelled() {
+            return this.state == State.CANCELLED;
+        }
+
+        public void setProgress(String progress) {
+            this.progress = progress;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public Priority getPriority() {
+            return this.priority;
+        }
+
+        public int getThreads() {
+            return this.threads;
+        }
+
+        public State getState() {
+            return this.state;
+        }
+
+        public boolean isThrottled() {
+            return this.throttled;
+        }
+
+        public long getBytes() {
+            return this.bytes.sum();
+        }
+
+        public long getStarted() {
+            return this.started;
+        }
+
+        public String getProgress() {
+            return this.progress;
+        }
+    }
+
+    private final PlayerVaults plugin;
+    private final Map<Integer, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private volatile double tickInterval = TICK_MILLIS;
+    // Negative while the server doesn't tell us
+    private volatile double mspt = -1;
+    private long lastTick;
+    private int ticks;
+
+    public JobScheduler(PlayerVaults plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Gets the job the current thread is working for.
+     *
+     * @return job, or null if this isn't a job thread
+     */
+    public static Job current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Starts measuring tick times, used to back off while the server is lagging.
+     */
+    public void start() {
+        PlayerVaults.scheduler().runTimer(() -> {
+            long now = System.nanoTime();
+            if (this.lastTick != 0) {
+                this.tickInterval = this.tickInterval * 0.95 + (now - this.lastTick) / 1_000_000D * 0.05;
+            }
+            this.lastTick = now;
+            if (AVERAGE_TICK_TIME != null && this.ticks++ % 20 == 0) {
+                try {
+                    this.mspt = (double) AVERAGE_TICK_TIME.invokeExact(Bukkit.getServer());
+                } catch (Throwable e) {
+                    this.mspt = -1; // Not supported here, Folia for one
+                }
+            }
+        }, 1, 1);
+    }
+
+    /**
+     * Starts a job in the background.
+     *
+     * @param name name shown in /pvjobs
+     * @param priority priority
+     * @param body work to do
+     * @return the job
+     */
+    public Job submit(String name, Priority priority, Body body) {
+        Config.Jobs config = this.plugin.getConf().getJobs();
+        IoBudget budget = switch (priority) {
+            case PREFETCH -> IoBudget.UNLIMITED;
+            case BACKUP -> IoBudget.ofKilobytes(config.getBackupIoBudget());
+            case MAINTENANCE -> IoBudget.ofKilobytes(this.plugin.getConf().getStorage().getBulkIoBudget());
+        };
+        int threads = priority == Priority.PREFETCH ? 1 : Math.max(1, Runtime.getRuntime().availableProcessors() * Math.min(100, config.getCpuPercent()) / 100);
+        Job job = new Job(this.ids.incrementAndGet(), name, priority, budget, threads);
+        if (priority != Priority.PREFETCH) {
+            this.jobs.put(job.id, job);
+        }
+        PlayerVaults.scheduler().runAsync(task -> {
+            CURRENT.set(job);
+            try {
+                job.checkpoint();
+                body.run(job);
+            } catch (CancellationException e) {
+                this.plugin.getLogger().info("Job " + job.id + " (" + name + ") stopped: " + e.getMessage());
+            } catch (Exception e) {
+                this.plugin.getLogger().log(Level.SEVERE, "Job " + job.id + " (" + name + ") failed", e);
+            } finally {
+                CURRENT.remove();
+                this.jobs.remove(job.id);
+            }
+        });
+        return job;
+    }
+
+    public Job get(int id) {
+        return this.jobs.get(id);
+    }
+
+    /**
+     * Gets all running jobs, highest priority first.
+     *
+     * @return jobs
+     */
+    public List<Job> getJobs() {
+        List<Job> list = new ArrayList<>(this.jobs.values());
+        list.sort(Comparator.comparing(Job::getPriority).thenComparingInt(Job::getId));
+        return list;
+    }
+
+    /**
+     * Gets the average time a tick takes, or if the server doesn't say, the average time between ticks.
+     *
+     * @return milliseconds
+     */
+    public double getMspt() {
+        return this.mspt >= 0 ? this.mspt : this.tickInterval;
+    }
+
+    /**
+     * Cancels every job. They stop at their next checkpoint.
+     */
+    public void shutdown() {
+        this.jobs.values().forEach(Job::cancel);
+    }
+
+    private boolean outranked(Job job) {
+        for (Job other : this.jobs.values()) {
+            if (other.priority.compareTo(job.priority) < 0 && other.state == State.RUNNING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean underPressure(Priority priority) {
+        Config.Jobs config = this.plugin.getConf().getJobs();
+        if (VaultManager.getInstance() != null && VaultManager.getInstance().getLiveWrites() >= config.getBackoffSaves()) {
+            return true;
+        }
+        if (priority == Priority.PREFETCH) {
+            return false;
+        }
+        // Ticks are 50ms apart on a healthy server, however little of that they take
+        return this.mspt >= 0 ? this.mspt > config.getBackoffMspt() : this.tickInterval > TICK_MILLIS + LATE_MILLIS;
+    }
+}
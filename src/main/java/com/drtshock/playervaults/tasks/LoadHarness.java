@@ -0,0 +1,341 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.tasks;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.stats.AccessTrace;
+import com.drtshock.playervaults.stats.Histogram;
+import com.drtshock.playervaults.stats.VaultStats;
+import com.drtshock.playervaults.vaultmanagement.CardboardBoxSerialization;
+import com.drtshock.playervaults.vaultmanagement.VaultManager;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates synthetic vault data and replays recorded {@link AccessTrace access traces} against it, for sizing disks
+ * and comparing storage backends without touching live data.
+ * <p>
+ * Everything happens in the sandbox folder {@code loadtest/}, laid out like the plugin's own data folder.
+ */
+public class LoadHarness {
+    private static final int VARIANTS = 16;
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+    // About as many holders as a busy server has online
+    private static final int CACHED_HOLDERS = 512;
+
+    /**
+     * Storage a trace can be replayed against.
+     */
+    public interface Backend {
+        void load(String holder) throws IOException;
+
+        void open(String holder, int vault) throws IOException;
+
+        void save(String holder, int vault) throws IOException;
+
+        void delete(String holder, int vault) throws IOException;
+
+        List<String> holders();
+    }
+
+    public record Report(int operations, int failed, long millis, Map<AccessTrace.Op, Histogram> latencies) {
+        public List<String> lines() {
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format(Locale.ROOT, "%d operations, %d failed, in %.1fs, %.1f ops/s", this.operations, this.failed,
+                    this.millis / 1000D, this.millis == 0 ? 0 : this.operations * 1000D / this.millis));
+            this.latencies.forEach((op, histogram) -> lines.add(String.format(Locale.ROOT, "%-6s %8d ops  mean %10s ms  p50 %10s ms  p99 %10s ms  p999 %10s ms  max %10s ms",
+                    op.name().toLowerCase(Locale.ROOT), histogram.getCount(), VaultStats.millis(histogram.getMean()), VaultStats.millis(histogram.getPercentile(0.5)),
+                    VaultStats.millis(histogram.getPercentile(0.99)), VaultStats.millis(histogram.getPercentile(0.999)), VaultStats.millis(histogram.getMax()))));
+            return lines;
+        }
+    }
+
+    private final PlayerVaults plugin;
+    private final Path folder;
+    private final Logger logger;
+
+    public LoadHarness(PlayerVaults plugin) {
+        this.plugin = plugin;
+        this.folder = plugin.getDataFolder().toPath().resolve("loadtest");
+        this.logger = plugin.getLogger();
+    }
+
+    public Path getFolder() {
+        return this.folder;
+    }
+
+    /**
+     * Parses an item mix such as {@code empty=10,stacked=70,nbt_heavy=20}.
+     *
+     * @param mix mix of vault kinds with relative weights
+     * @return weights by kind
+     * @throws IllegalArgumentException if the mix can't be understood
+     */
+    public static Map<SampleItems.Kind, Integer> parseMix(String mix) {
+        Map<SampleItems.Kind, Integer> weights = new EnumMap<>(SampleItems.Kind.class);
+        for (String part : mix.split(",")) {
+            String[] split = part.split("=");
+            if (split.length != 2) {
+                throw new IllegalArgumentException("Expected kind=weight, got " + part);
+            }
+            weights.put(SampleItems.Kind.valueOf(split[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(split[1].trim()));
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("Weights must add up to more than 0");
+        }
+        return weights;
+    }
+
+    /**
+     * Fills the sandbox with holder files of random UUIDs. Should only be run asynchronously.
+     *
+     * @param holders number of holders
+     * @param vaults vaults per holder
+     * @param mix weights of each kind of vault
+     * @param seed random seed, the same seed always generates the same data
+     * @param progress receives progress messages
+     * @return number of vaults written
+     * @throws IOException if the sandbox can't be written
+     */
+    public int generate(int holders, int vaults, Map<SampleItems.Kind, Integer> mix, long seed, Consumer<String> progress) throws IOException {
+        Path data = this.folder.resolve("newvaults");
+        Files.createDirectories(data);
+        Random random = new Random(seed);
+
+        // Serializing is the slow part, so a handful of variants of each kind are shared between vaults
+        Map<SampleItems.Kind, String[]> variants = new EnumMap<>(SampleItems.Kind.class);
+        for (SampleItems.Kind kind : mix.keySet()) {
+            String[] serialized = new String[VARIANTS];
+            for (int i = 0; i < VARIANTS; i++) {
+                serialized[i] = CardboardBoxSerialization.toStorage(SampleItems.vault(kind, 54, 0.2 + random.nextDouble() * 0.8, random), "loadtest");
+            }
+            variants.put(kind, serialized);
+        }
+        List<SampleItems.Kind> weighted = new ArrayList<>();
+        mix.forEach((kind, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(kind);
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        long lastProgress = start;
+        int written = 0;
+        for (int h = 0; h < holders; h++) {
+            YamlConfiguration yaml = new YamlConfiguration();
+            for (int v = 1; v <= vaults; v++) {
+                String[] options = variants.get(weighted.get(random.nextInt(weighted.size())));
+                yaml.set("vault" + v, options[random.nextInt(options.length)]);
+                written++;
+            }
+            yaml.save(data.resolve(new UUID(random.nextLong(), random.nextLong()) + ".yml").toFile());
+            long now = System.currentTimeMillis();
+            if (now - lastProgress > PROGRESS_INTERVAL) {
+                lastProgress = now;
+                progress.accept("Generated " + (h + 1) + " of " + holders + " holders");
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Replays a trace against a backend. Holders in the trace are mapped onto the backend's holders, so a trace
+     * recorded on a live server can be replayed against generated data. Should only be run asynchronously.
+     *
+     * @param trace entries to replay
+     * @param backend storage to replay against
+     * @param threads number of concurrent workers
+     * @param speed replay speed relative to the recording, or 0 to replay as fast as possible
+     * @param progress receives progress messages
+     * @return throughput and latencies
+     */
+    public Report replay(List<AccessTrace.Entry> trace, Backend backend, int threads, double speed, Consumer<String> progress) {
+        List<String> holders = backend.holders();
+        if (holders.isEmpty()) {
+            throw new IllegalStateException("No holders to replay against, generate some first");
+        }
+        Set<String> known = new HashSet<>(holders);
+        Map<String, String> mapped = new ConcurrentHashMap<>();
+        Map<AccessTrace.Op, Histogram> latencies = new EnumMap<>(AccessTrace.Op.class);
+        for (AccessTrace.Op op : AccessTrace.Op.values()) {
+            latencies.put(op, new Histogram());
+        }
+        // Operations on one holder are replayed in order, as the plugin never runs them concurrently either, so every
+        // holder is routed to the same single threaded worker
+        ExecutorService[] workers = new ExecutorService[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            String name = "PlayerVaults Replay #" + (i + 1);
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Semaphore inFlight = new Semaphore(workers.length * 4);
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        long lastProgress = start;
+        for (AccessTrace.Entry entry : trace) {
+            if (speed > 0) {
+                long due = start + (long) (entry.time() / speed);
+                long wait = due - System.currentTimeMillis();
+                if (wait > 0) {
+                    try {
+                        Thread.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            String holder = mapped.computeIfAbsent(entry.holder(), key -> known.contains(key) ? key : holders.get(Math.floorMod(key.hashCode(), holders.size())));
+            inFlight.acquireUninterruptibly();
+            workers[Math.floorMod(holder.hashCode(), workers.length)].execute(() -> {
+                long opStart = System.nanoTime();
+                try {
+                    switch (entry.op()) {
+                        case LOAD -> backend.load(holder);
+                        case OPEN -> backend.open(holder, entry.vault());
+                        case SAVE -> backend.save(holder, entry.vault());
+                        case DELETE -> backend.delete(holder, entry.vault());
+                    }
+                    latencies.get(entry.op()).record(System.nanoTime() - opStart);
+                } catch (Exception e) {
+                    if (failed.incrementAndGet() <= 10) {
+                        this.logger.log(Level.WARNING, "Replay of " + entry + " failed", e);
+                    }
+                } finally {
+                    done.incrementAndGet();
+                    inFlight.release();
+                }
+            });
+            long now = System.currentTimeMillis();
+            if (now - lastProgress > PROGRESS_INTERVAL) {
+                lastProgress = now;
+                progress.accept("Replayed " + done.get() + " of " + trace.size() + " operations");
+            }
+        }
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        try {
+            for (ExecutorService worker : workers) {
+                while (!worker.awaitTermination(1, TimeUnit.MINUTES)) {
+                    progress.accept("Replayed " + done.get() + " of " + trace.size() + " operations");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (ExecutorService worker : workers) {
+                worker.shutdownNow();
+            }
+        }
+        latencies.values().removeIf(histogram -> histogram.getCount() == 0);
+        return new Report(done.get(), failed.get(), System.currentTimeMillis() - start, latencies);
+    }
+
+    /**
+     * Creates a backend storing holder files in the sandbox through a {@link VaultManager#sandbox sandboxed} vault
+     * manager, so replays go through the same mailbox, buffers, summaries and versions as live saves. Holders stay
+     * cached while in use, as online players do, and are parked once more than {@value #CACHED_HOLDERS} are.
+     *
+     * @return flat file backend
+     */
+    public Backend flatFile() {
+        File directory = this.folder.resolve("newvaults").toFile();
+        VaultManager vaults = VaultManager.sandbox(this.plugin, directory);
+        Map<String, Boolean> cached = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                if (this.size() <= CACHED_HOLDERS) {
+                    return false;
+                }
+                vaults.parkPlayerVaultFile(eldest.getKey());
+                return true;
+            }
+        });
+        return new Backend() {
+            @Override
+            public void load(String holder) {
+                vaults.removeCachedPlayerVaultFile(holder);
+                vaults.cachePlayerVaultFile(holder);
+                cached.put(holder, Boolean.TRUE);
+            }
+
+            @Override
+            public void open(String holder, int vault) {
+                cached.put(holder, Boolean.TRUE);
+                vaults.getVault(holder, vault);
+            }
+
+            @Override
+            public void save(String holder, int vault) {
+                cached.put(holder, Boolean.TRUE);
+                // Traces only know the size of what was saved, so the stored contents are saved again
+                vaults.saveVaults(holder, Map.of(vault, vaults.getVault(holder, vault).getContents()));
+            }
+
+            @Override
+            public void delete(String holder, int vault) {
+                // Deleting from generated data would shrink it with every replay, so only the write is replayed
+                this.save(holder, Math.max(1, vault));
+            }
+
+            @Override
+            public List<String> holders() {
+                return LoadHarness.holders(directory);
+            }
+        };
+    }
+
+    private static List<String> holders(File directory) {
+        List<String> holders = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".yml"));
+        for (File file : files != null ? files : new File[0]) {
+            holders.add(file.getName().substring(0, file.getName().length() - 4));
+        }
+        holders.sort(null);
+        return holders;
+    }
+}
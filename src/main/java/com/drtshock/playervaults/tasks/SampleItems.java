@@ -0,0 +1,115 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.tasks;
+
+import org.bukkit.Material;
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.bukkit.inventory.meta.BookMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds realistic vault contents for benchmarks and generated load test data.
+ */
+public final class SampleItems {
+    private static final Material[] STACKABLE = {Material.STONE, Material.DIRT, Material.OAK_LOG, Material.IRON_INGOT, Material.DIAMOND, Material.COBBLESTONE};
+
+    /**
+     * Kinds of vault found on real servers.
+     */
+    public enum Kind {
+        EMPTY,
+        STACKED,
+        NBT_HEAVY
+    }
+
+    private SampleItems() {
+    }
+
+    /**
+     * Builds a vault of the given kind.
+     *
+     * @param kind kind of vault
+     * @param size number of slots
+     * @param fill fraction of slots to fill, between 0 and 1
+     * @param random source of the item order
+     * @return contents
+     */
+    public static ItemStack[] vault(Kind kind, int size, double fill, Random random) {
+        ItemStack[] contents = new ItemStack[size];
+        if (kind == Kind.EMPTY) {
+            return contents;
+        }
+        for (int i = 0; i < size; i++) {
+            if (random.nextDouble() >= fill) {
+                continue;
+            }
+            contents[i] = kind == Kind.STACKED ? new ItemStack(STACKABLE[random.nextInt(STACKABLE.length)], 1 + random.nextInt(64)) : switch (random.nextInt(3)) {
+                case 0 -> shulker();
+                case 1 -> book();
+                default -> enchanted(Material.DIAMOND_SWORD, "Blade #" + i);
+            };
+        }
+        return contents;
+    }
+
+    public static ItemStack enchanted(Material material, String name) {
+        ItemStack item = new ItemStack(material);
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(name);
+            meta.setLore(List.of("A sample item", "with a few lines", "of lore"));
+            item.setItemMeta(meta);
+        }
+        item.addUnsafeEnchantment(Enchantment.SHARPNESS, 5);
+        item.addUnsafeEnchantment(Enchantment.UNBREAKING, 3);
+        item.addUnsafeEnchantment(Enchantment.MENDING, 1);
+        return item;
+    }
+
+    public static ItemStack book() {
+        ItemStack book = new ItemStack(Material.WRITTEN_BOOK);
+        if (book.getItemMeta() instanceof BookMeta meta) {
+            meta.setTitle("Sample");
+            meta.setAuthor("PlayerVaults");
+            for (int page = 0; page < 20; page++) {
+                meta.addPage("Page " + page + " ".repeat(10) + "lorem ipsum dolor sit amet ".repeat(8));
+            }
+            book.setItemMeta(meta);
+        }
+        return book;
+    }
+
+    public static ItemStack shulker() {
+        ItemStack shulker = new ItemStack(Material.SHULKER_BOX);
+        if (shulker.getItemMeta() instanceof BlockStateMeta meta && meta.getBlockState() instanceof ShulkerBox box) {
+            for (int slot = 0; slot < box.getInventory().getSize(); slot++) {
+                box.getInventory().setItem(slot, enchanted(Material.DIAMOND_PICKAXE, "Pick #" + slot));
+            }
+            meta.setBlockState(box);
+            shulker.setItemMeta(meta);
+        }
+        return shulker;
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.tasks;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.vaultmanagement.VaultManager;
+import com.drtshock.playervaults.vaultmanagement.VaultOperations;
+import org.bukkit.Bukkit;
+import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports every vault to, or imports vaults from, a single gzip compressed archive.
+ * <p>
+ * The archive starts with the magic bytes {@code PVX1}, followed by one block per holder: the holder key, the number
+ * of vaults, then for each vault its number, the length of its serialized contents, the contents and their CRC32.
+ * An empty holder key and the total number of vaults end the archive. Vault contents are the storage layer's own
+ * serialized form, so importing only has to verify and store them.
+ */
+public class VaultArchive {
+    public static final String EXTENSION = ".pvx";
+    private static final byte[] MAGIC = "PVX1".getBytes(StandardCharsets.US_ASCII);
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+    // Holder keys are file names, anything else in an archive is corrupt or crafted
+    private static final Pattern HOLDER_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    public record Result(int holders, int vaults, int failed) {
+    }
+
+    private final PlayerVaults plugin;
+    private final JobScheduler.Job job;
+    // Holders read but not yet written, bounding memory use
+    private final Semaphore inFlight;
+    private final AtomicInteger holders = new AtomicInteger();
+    private final AtomicInteger vaults = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private long start;
+    private volatile long lastProgress;
+
+    public VaultArchive(PlayerVaults plugin, JobScheduler.Job job) {
+        this.plugin = plugin;
+        this.job = job;
+        this.inFlight = new Semaphore(job.getThreads() * 4);
+    }
+
+    /**
+     * Gets the folder archives are written to and read from.
+     *
+     * @param plugin plugin
+     * @return archive folder
+     */
+    public static Path getFolder(PlayerVaults plugin) {
+        return plugin.getDataFolder().toPath().resolve("exports");
+    }
+
+    /**
+     * Writes every holder's stored vaults to an archive. Holders are read in parallel.
+     *
+     * @param target archive to create
+     * @return what was exported
+     * @throws IOException if the archive can't be written
+     */
+    public Result export(Path target) throws IOException {
+        this.start = System.currentTimeMillis();
+        this.lastProgress = this.start;
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        VaultManager vaultManager = VaultManager.getInstance();
+        ExecutorService workers = this.job.newPool("Export");
+        // A record cut short leaves the rest of the stream unreadable, so the first write failure ends the export
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp), 1 << 16)))) {
+            out.write(MAGIC);
+            for (String holder : vaultManager.getHolderKeys()) {
+                if (writeFailure.get() != null) {
+                    break;
+                }
+                this.job.checkpoint();
+                this.inFlight.acquireUninterruptibly();
+                workers.execute(() -> {
+                    try {
+                        Map<Integer, String> raw = vaultManager.getRawVaults(holder);
+                        if (raw.isEmpty()) {
+                            return;
+                        }
+                        List<Integer> numbers = new ArrayList<>(raw.keySet());
+                        numbers.sort(null);
+                        List<byte[]> payloads = new ArrayList<>(numbers.size());
+                        for (int number : numbers) {
+                            payloads.add(Base64Coder.decodeLines(raw.get(number)));
+                        }
+                        this.job.transfer(payloads.stream().mapToLong(payload -> payload.length).sum());
+                        CRC32 crc = new CRC32();
+                        synchronized (out) {
+                            if (writeFailure.get() != null) {
+                                return;
+                            }
+                            try {
+                                this.writeHolder(out, crc, holder, numbers, payloads);
+                            } catch (IOException e) {
+                                writeFailure.compareAndSet(null, e);
+                                return;
+                            }
+                        }
+                        this.holders.incrementAndGet();
+                        this.vaults.addAndGet(numbers.size());
+                    } catch (Exception e) {
+                        this.failed.incrementAndGet();
+                        this.plugin.getLogger().log(Level.WARNING, "Failed to export vaults of " + holder, e);
+                    } finally {
+                        this.inFlight.release();
+                        this.logProgress("Export", false);
+                    }
+                });
+            }
+            awaitPool(workers);
+            if (writeFailure.get() != null) {
+                throw writeFailure.get();
+            }
+            out.writeUTF("");
+            out.writeLong(this.vaults.get());
+        } catch (IOException | RuntimeException e) {
+            workers.shutdownNow();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        this.logProgress("Export", true);
+        return new Result(this.holders.get(), this.vaults.get(), this.failed.get());
+    }
+
+    private void writeHolder(DataOutputStream out, CRC32 crc, String holder, List<Integer> numbers, List<byte[]> payloads) throws IOException {
+        out.writeUTF(holder);
+        out.writeInt(numbers.size());
+        for (int i = 0; i < numbers.size(); i++) {
+            byte[] payload = payloads.get(i);
+            crc.reset();
+            crc.update(payload);
+            out.writeInt(numbers.get(i));
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeLong(crc.getValue());
+        }
+    }
+
+    /**
+     * Stores every vault in an archive, replacing vaults with the same number. Vaults whose checksum doesn't match are
+     * skipped. Holders are written in parallel, each while its vaults are under maintenance.
+     *
+     * @param source archive to read
+     * @return what was imported
+     * @throws IOException if the archive can't be read or isn't an archive
+     */
+    public Result importFrom(Path source) throws IOException {
+        this.start = System.currentTimeMillis();
+        this.lastProgress = this.start;
+        VaultManager vaultManager = VaultManager.getInstance();
+        ExecutorService workers = this.job.newPool("Import");
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(source), 1 << 16)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(source.getFileName() + " is not a vault archive");
+            }
+            CRC32 crc = new CRC32();
+            String holder;
+            while (!(holder = in.readUTF()).isEmpty()) {
+                int count = in.readInt();
+                Map<Integer, String> raw = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    int number = in.readInt();
+                    byte[] payload = new byte[in.readInt()];
+                    in.readFully(payload);
+                    long expected = in.readLong();
+                    crc.reset();
+                    crc.update(payload);
+                    if (crc.getValue() != expected) {
+                        this.failed.incrementAndGet();
+                        this.plugin.getLogger().warning("Checksum mismatch for vault " + number + " of " + holder + ", skipping it");
+                        continue;
+                    }
+                    raw.put(number, Base64Coder.encodeLines(payload));
+                }
+                if (!isValidHolder(holder)) {
+                    this.failed.addAndGet(raw.size());
+                    this.plugin.getLogger().warning("Skipping " + raw.size() + " vaults of invalid holder \"" + holder + "\" in " + source.getFileName());
+                    continue;
+                }
+                if (raw.isEmpty()) {
+                    continue;
+                }
+                String finalHolder = holder;
+                this.job.checkpoint();
+                this.inFlight.acquireUninterruptibly();
+                workers.execute(() -> {
+                    try {
+                        this.job.transfer(raw.values().stream().mapToLong(String::length).sum());
+                        VaultOperations.withMaintenance(finalHolder, () -> vaultManager.saveRawVaults(finalHolder, raw));
+                        if (!isOnline(finalHolder)) {
+                            vaultManager.removeCachedPlayerVaultFile(finalHolder);
+                        }
+                        this.holders.incrementAndGet();
+                        this.vaults.addAndGet(raw.size());
+                    } catch (Exception e) {
+                        this.failed.addAndGet(raw.size());
+                        this.plugin.getLogger().log(Level.WARNING, "Failed to import vaults of " + finalHolder, e);
+                    } finally {
+                        this.inFlight.release();
+                        this.logProgress("Import", false);
+                    }
+                });
+            }
+            long total = in.readLong();
+            awaitPool(workers);
+            if (total != this.vaults.get() + this.failed.get()) {
+                this.plugin.getLogger().warning("Archive lists " + total + " vaults but " + (this.vaults.get() + this.failed.get()) + " were read");
+            }
+        } catch (IOException | RuntimeException e) {
+            workers.shutdownNow();
+            throw e;
+        }
+        this.logProgress("Import", true);
+        return new Result(this.holders.get(), this.vaults.get(), this.failed.get());
+    }
+
+    private static boolean isValidHolder(String holder) {
+        try {
+            return UUID.fromString(holder).toString().equals(holder);
+        } catch (IllegalArgumentException e) {
+            return HOLDER_NAME.matcher(holder).matches();
+        }
+    }
+
+    private static void awaitPool(ExecutorService pool) throws IOException {
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Keep waiting, progress is logged by the workers
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+
+    private void logProgress(String action, boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && now - this.lastProgress < PROGRESS_INTERVAL) {
+            return;
+        }
+        this.lastProgress = now;
+        this.job.setProgress(this.vaults.get() + " vaults of " + this.holders.get() + " holders");
+        this.plugin.getLogger().info(action + ": " + this.vaults.get() + " vaults of " + this.holders.get() + " holders, " + this.failed.get() + " failed, " + ((now - this.start) / 1000) + "s");
+    }
+
+    private static boolean isOnline(String holder) {
+        try {
+            return Bukkit.getPlayer(UUID.fromString(holder)) != null;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.tasks;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.vaultmanagement.CardboardBoxSerialization;
+import com.drtshock.playervaults.vaultmanagement.VaultManager;
+import com.drtshock.playervaults.vaultmanagement.VaultOperations;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.bukkit.inventory.meta.BundleMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Removes or replaces an item in every stored vault, including inside shulker boxes and bundles, for cleaning up after
+ * an exploit without taking the server down.
+ * <p>
+ * Holders are processed in parallel as a background job, reading and writing through the storage layer within the
+ * job's disk budget. Only
+ * vaults that changed are written. Holders with a vault open are left alone and retried after the rest are done.
+ * Every change, or every change that would be made in a dry run, is listed in a report.
+ */
+public class VaultMutation {
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+    private static final int RETRY_PASSES = 5;
+    private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * What to look for and what to do with it.
+     *
+     * @param match material to match
+     * @param modelData custom model data to match, or -1 to match any
+     * @param replacement material to replace matches with, keeping their amount, or null to remove them
+     */
+    public record Rule(Material match, int modelData, Material replacement) {
+        @SuppressWarnings("deprecation")
+        private boolean matches(ItemStack item) {
+            if (item == null || item.getType() != this.match) {
+                return false;
+            }
+            if (this.modelData < 0) {
+                return true;
+            }
+            ItemMeta meta = item.hasItemMeta() ? item.getItemMeta() : null;
+            return meta != null && meta.hasCustomModelData() && meta.getCustomModelData() == this.modelData;
+        }
+
+        private ItemStack apply(ItemStack item) {
+            return this.replacement == null ? null : new ItemStack(this.replacement, Math.min(item.getAmount(), this.replacement.getMaxStackSize()));
+        }
+
+        @Override
+        public String toString() {
+            return (this.replacement == null ? "remove " : "replace ") + this.match.name() + (this.modelData < 0 ? "" : " with model data " + this.modelData) + (this.replacement == null ? "" : " with " + this.replacement.name());
+        }
+    }
+
+    public record Result(int holders, int vaults, int items, List<String> deferred, int failed, Path report) {
+    }
+
+    private final PlayerVaults plugin;
+    private final Rule rule;
+    private final boolean dryRun;
+    private final JobScheduler.Job job;
+    private final Semaphore inFlight;
+    private final Queue<String> deferred = new ConcurrentLinkedQueue<>();
+    private final Queue<String> changes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger scanned = new AtomicInteger();
+    private final AtomicInteger vaults = new AtomicInteger();
+    private final AtomicInteger items = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private long start;
+    private volatile long lastProgress;
+
+    public VaultMutation(PlayerVaults plugin, Rule rule, boolean dryRun, JobScheduler.Job job) {
+        this.plugin = plugin;
+        this.rule = rule;
+        this.dryRun = dryRun;
+        this.job = job;
+        this.inFlight = new Semaphore(job.getThreads() * 4);
+    }
+
+    /**
+     * Runs the job over every holder. Should only be run asynchronously, as it waits for deferred holders.
+     *
+     * @param progress receives progress messages
+     * @return what was changed, or would have been
+     * @throws IOException if the report can't be written
+     */
+    public Result run(Consumer<String> progress) throws IOException {
+        this.start = System.currentTimeMillis();
+        this.lastProgress = this.start;
+        List<String> holders = new ArrayList<>(VaultManager.getInstance().getHolderKeys());
+        for (int pass = 0; ; pass++) {
+            this.runPass(holders, progress);
+            if (this.deferred.isEmpty() || pass == RETRY_PASSES || this.job.isCancelled()) {
+                break;
+            }
+            holders = new ArrayList<>(this.deferred);
+            this.deferred.clear();
+            progress.accept(holders.size() + " holders had a vault open, retrying them in " + (RETRY_DELAY / 1000) + " seconds");
+            try {
+                Thread.sleep(RETRY_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+        }
+        this.logProgress(progress, true);
+        return new Result(this.scanned.get(), this.vaults.get(), this.items.get(), new ArrayList<>(this.deferred), this.failed.get(), this.writeReport());
+    }
+
+    private void runPass(List<String> holders, Consumer<String> progress) throws IOException {
+        ExecutorService workers = this.job.newPool("Mutation");
+        for (String holder : holders) {
+            if (this.job.isCancelled()) {
+                this.deferred.add(holder);
+                continue;
+            }
+            this.inFlight.acquireUninterruptibly();
+            workers.execute(() -> {
+                try {
+                    this.job.checkpoint();
+                    if (this.dryRun) {
+                        this.process(holder);
+                    } else if (!VaultOperations.tryMaintenance(holder, () -> this.process(holder))) {
+                        this.deferred.add(holder);
+                    }
+                } catch (CancellationException e) {
+                    this.deferred.add(holder);
+                } catch (Exception e) {
+                    this.failed.incrementAndGet();
+                    this.plugin.getLogger().log(Level.WARNING, "Failed to apply " + this.rule + " to vaults of " + holder, e);
+                } finally {
+                    this.inFlight.release();
+                    this.logProgress(progress, false);
+                }
+            });
+        }
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Keep waiting, progress is logged by the workers
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+            throw new IOException("Interrupted", e);
+        }
+    }
+
+    private void process(String holder) {
+        VaultManager vaultManager = VaultManager.getInstance();
+        Map<Integer, String> raw = vaultManager.getRawVaults(holder);
+        Map<Integer, ItemStack[]> changed = new HashMap<>();
+        long bytes = 0;
+        for (Map.Entry<Integer, String> vault : raw.entrySet()) {
+            this.job.transfer(vault.getValue().length());
+            ItemStack[] contents = CardboardBoxSerialization.fromStorage(vault.getValue(), holder);
+            if (contents == null) {
+                this.failed.incrementAndGet();
+                continue;
+            }
+            int found = this.mutate(contents, holder + " vault " + vault.getKey());
+            if (found > 0) {
+                changed.put(vault.getKey(), contents);
+                bytes += vault.getValue().length();
+                this.items.addAndGet(found);
+            }
+        }
+        this.scanned.incrementAndGet();
+        if (changed.isEmpty()) {
+            return;
+        }
+        this.vaults.addAndGet(changed.size());
+        if (!this.dryRun) {
+            this.job.transfer(bytes);
+            vaultManager.saveVaults(holder, changed);
+            if (!isOnline(holder)) {
+                vaultManager.parkPlayerVaultFile(holder);
+            }
+        }
+    }
+
+    /**
+     * Applies the rule to every slot, including the contents of shulker boxes and bundles, which are written back to
+     * their container item when anything inside changed.
+     *
+     * @param contents slots to mutate in place
+     * @param where location of the slots for the report
+     * @return number of items matched
+     */
+    private int mutate(ItemStack[] contents, String where) {
+        int found = 0;
+        for (int slot = 0; slot < contents.length; slot++) {
+            ItemStack item = contents[slot];
+            if (item == null) {
+                continue;
+            }
+            String at = where + " slot " + slot;
+            if (this.rule.matches(item)) {
+                found++;
+                this.changes.add(at + ": " + item.getAmount() + "x " + item.getType().name());
+                contents[slot] = this.rule.apply(item);
+            } else if (item.hasItemMeta()) {
+                found += this.mutateContainer(item, at);
+            }
+        }
+        return found;
+    }
+
+    private int mutateContainer(ItemStack item, String where) {
+        ItemMeta meta = item.getItemMeta();
+        int found = 0;
+        if (meta instanceof BlockStateMeta stateMeta && stateMeta.hasBlockState() && stateMeta.getBlockState() instanceof ShulkerBox box) {
+            ItemStack[] contents = box.getInventory().getContents();
+            found = this.mutate(contents, where + " shulker box");
+            if (found > 0) {
+                box.getInventory().setContents(contents);
+                stateMeta.setBlockState(box);
+            }
+        } else if (meta instanceof BundleMeta bundle && bundle.hasItems()) {
+            ItemStack[] contents = bundle.getItems().toArray(new ItemStack[0]);
+            found = this.mutate(contents, where + " bundle");
+            if (found > 0) {
+                bundle.setItems(Arrays.stream(contents).filter(Objects::nonNull).toList());
+            }
+        }
+        if (found > 0) {
+            item.setItemMeta(meta);
+        }
+        return found;
+    }
+
+    private Path writeReport() throws IOException {
+        Path folder = this.plugin.getDataFolder().toPath().resolve("mutations");
+        Files.createDirectories(folder);
+        Path report = folder.resolve("mutation-" + this.start + (this.dryRun ? "-dryrun" : "") + ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            writer.write((this.dryRun ? "Dry run: " : "") + this.rule);
+            writer.newLine();
+            writer.write(this.items.get() + " items in " + this.vaults.get() + " vaults of " + this.scanned.get() + " holders scanned, " + this.failed.get() + " failed");
+            writer.newLine();
+            for (String change : this.changes) {
+                writer.write(change);
+                writer.newLine();
+            }
+            for (String holder : this.deferred) {
+                writer.write(holder + (this.job.isCancelled() ? " not processed, the job was cancelled" : " not processed, a vault was open"));
+                writer.newLine();
+            }
+        }
+        return report;
+    }
+
+    private void logProgress(Consumer<String> progress, boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && now - this.lastProgress < PROGRESS_INTERVAL) {
+            return;
+        }
+        this.lastProgress = now;
+        this.job.setProgress(this.scanned.get() + " holders scanned, " + this.items.get() + " items matched");
+        progress.accept((this.dryRun ? "Dry run: " : "") + this.scanned.get() + " holders scanned, " + this.items.get() + " items in " + this.vaults.get() + " vaults matched, " + this.failed.get() + " failed, " + ((now - this.start) / 1000) + "s");
+    }
+
+    private static boolean isOnline(String holder) {
+        try {
+            return Bukkit.getPlayer(UUID.fromString(holder)) != null;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
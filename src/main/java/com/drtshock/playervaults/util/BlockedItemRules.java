@@ -0,0 +1,278 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.util;
+
+import com.drtshock.playervaults.config.file.Config;
+import com.drtshock.playervaults.events.BlacklistedItemEvent;
+import org.bukkit.Material;
+import org.bukkit.Registry;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * The item blocking section of the config, compiled into an immutable form that can check an item without allocating.
+ * <p>
+ * Checks return a mask of {@link BlacklistedItemEvent.Reason} ordinals, zero meaning the item is allowed.
+ */
+public final class BlockedItemRules {
+    /**
+     * Rules that block nothing, used while item blocking is disabled.
+     */
+    public static final BlockedItemRules NONE = new BlockedItemRules(new long[0], new Enchantment[0], false, false);
+
+    // Order in which reasons are reported, and so which one's message is sent.
+    private static final BlacklistedItemEvent.Reason[] REPORT_ORDER = {
+            BlacklistedItemEvent.Reason.HAS_MODEL_DATA,
+            BlacklistedItemEvent.Reason.HAS_NO_MODEL_DATA,
+            BlacklistedItemEvent.Reason.TYPE,
+            BlacklistedItemEvent.Reason.ENCHANTMENT
+    };
+
+    private final long[] materials;
+    private final Enchantment[] enchantments;
+    private final boolean withModelData;
+    private final boolean withoutModelData;
+    private final boolean empty;
+
+    private BlockedItemRules(long[] materials, Enchantment[] enchantments, boolean withModelData, boolean withoutModelData) {
+        this.materials = materials;
+        this.enchantments = enchantments;
+        this.withModelData = withModelData;
+        this.withoutModelData = withoutModelData;
+        boolean noMaterials = true;
+        for (long word : materials) {
+            if (word != 0) {
+                noMaterials = false;
+                break;
+            }
+        }
+        this.empty = noMaterials && enchantments.length == 0 && !withModelData && !withoutModelData;
+    }
+
+    /**
+     * Compiles the configured lists, logging anything that could not be understood.
+     *
+     * @param config item blocking config
+     * @param logger logger to report to
+     * @return compiled rules
+     */
+    public static BlockedItemRules compile(Config.Block config, Logger logger) {
+        if (!config.isEnabled()) {
+            return NONE;
+        }
+
+        long[] materials = new long[(Material.values().length + 63) >>> 6];
+        boolean withModelData = false;
+        boolean withoutModelData = false;
+        for (String s : config.getList()) {
+            if (s.equalsIgnoreCase("BLOCK_ALL_WITH_CUSTOM_MODEL_DATA")) {
+                withModelData = true;
+            }
+            if (s.equalsIgnoreCase("BLOCK_ALL_WITHOUT_CUSTOM_MODEL_DATA")) {
+                withoutModelData = true;
+            }
+            Material mat = Material.matchMaterial(s);
+            if (mat != null) {
+                materials[mat.ordinal() >>> 6] |= 1L << mat.ordinal();
+                logger.log(Level.INFO, "Added {0} to list of blocked materials.", mat.name());
+            }
+        }
+
+        Set<Enchantment> enchantments = new LinkedHashSet<>();
+        boolean badEnch = false;
+        for (String s : config.getEnchantmentsBlocked()) {
+            Enchantment ench = Registry.ENCHANTMENT.match(s);
+            if (ench != null) {
+                enchantments.add(ench);
+            } else {
+                badEnch = true;
+                logger.warning("Invalid enchantment in config: " + s);
+            }
+        }
+        if (badEnch) {
+            logger.info("Valid enchantent options: " + Registry.ENCHANTMENT.stream().map(e -> e.getKey().toString()).collect(Collectors.joining(", ")));
+        }
+
+        try {
+            ItemMeta.class.getMethod("hasCustomModelData");
+        } catch (NoSuchMethodException e) {
+            withModelData = false;
+            withoutModelData = false;
+        }
+
+        Enchantment[] enchArray = enchantments.toArray(new Enchantment[0]);
+        return new BlockedItemRules(materials, enchArray, withModelData, withoutModelData);
+    }
+
+    /**
+     * Gets if nothing at all is blocked, letting callers skip checks entirely.
+     *
+     * @return true if no item can ever be blocked
+     */
+    public boolean isEmpty() {
+        return this.empty;
+    }
+
+    /**
+     * Checks an item against every rule.
+     *
+     * @param item item to check
+     * @return mask of reason ordinals, or zero if the item is allowed
+     */
+    public int check(ItemStack item) {
+        if (this.empty) {
+            return 0;
+        }
+        int mask = 0;
+        if (this.withModelData || this.withoutModelData) {
+            // getItemMeta copies the meta, so only grab it once and only if there is any.
+            boolean hasModelData = item.hasItemMeta() && item.getItemMeta() instanceof ItemMeta meta && meta.hasCustomModelData();
+            if (this.withModelData && hasModelData) {
+                mask |= bit(BlacklistedItemEvent.Reason.HAS_MODEL_DATA);
+            }
+            if (this.withoutModelData && !hasModelData) {
+                mask |= bit(BlacklistedItemEvent.Reason.HAS_NO_MODEL_DATA);
+            }
+        }
+        if (this.isBlocked(item.getType())) {
+            mask |= bit(BlacklistedItemEvent.Reason.TYPE);
+        }
+        if (this.hasBlockedEnchantment(item)) {
+            mask |= bit(BlacklistedItemEvent.Reason.ENCHANTMENT);
+        }
+        return mask;
+    }
+
+    /**
+     * Gets if an item carries any blocked enchantment.
+     *
+     * @param item item to check
+     * @return true if at least one blocked enchantment is present
+     */
+    public boolean hasBlockedEnchantment(ItemStack item) {
+        for (Enchantment enchantment : this.enchantments) {
+            if (item.containsEnchantment(enchantment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks which blocked enchantments an item carries.
+     *
+     * @param item item to check
+     * @return mask words with bit i set if the item has the i-th blocked enchantment, all zero if none
+     */
+    public long[] enchantmentMask(ItemStack item) {
+        long[] mask = new long[(this.enchantments.length + 63) >>> 6];
+        for (int i = 0; i < this.enchantments.length; i++) {
+            if (item.containsEnchantment(this.enchantments[i])) {
+                mask[i >>> 6] |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Gets if a material is blocked.
+     *
+     * @param material material to check
+     * @return true if blocked
+     */
+    public boolean isBlocked(Material material) {
+        int ordinal = material.ordinal();
+        int word = ordinal >>> 6;
+        return word < this.materials.length && (this.materials[word] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Gets the blocked enchantments present on an item.
+     *
+     * @param item item to check
+     * @return set of blocked enchantments, empty if none
+     */
+    public Set<Enchantment> getBlockedEnchantments(ItemStack item) {
+        if (!this.hasBlockedEnchantment(item)) {
+            return Collections.emptySet();
+        }
+        long[] mask = this.enchantmentMask(item);
+        Set<Enchantment> found = new LinkedHashSet<>();
+        for (int i = 0; i < this.enchantments.length; i++) {
+            if ((mask[i >>> 6] & (1L << i)) != 0) {
+                found.add(this.enchantments[i]);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets all blocked materials.
+     *
+     * @return set of blocked materials
+     */
+    public Set<Material> getMaterials() {
+        Set<Material> set = EnumSet.noneOf(Material.class);
+        for (Material material : Material.values()) {
+            if (this.isBlocked(material)) {
+                set.add(material);
+            }
+        }
+        return set;
+    }
+
+    public boolean isWithModelData() {
+        return this.withModelData;
+    }
+
+    public boolean isWithoutModelData() {
+        return this.withoutModelData;
+    }
+
+    /**
+     * Expands a mask from {@link #check(ItemStack)} into a mutable list of reasons, in reporting order.
+     *
+     * @param mask reason mask
+     * @return list of reasons
+     */
+    public static List<BlacklistedItemEvent.Reason> reasons(int mask) {
+        List<BlacklistedItemEvent.Reason> reasons = new ArrayList<>(REPORT_ORDER.length);
+        for (BlacklistedItemEvent.Reason reason : REPORT_ORDER) {
+            if ((mask & bit(reason)) != 0) {
+                reasons.add(reason);
+            }
+        }
+        return reasons;
+    }
+
+    private static int bit(BlacklistedItemEvent.Reason reason) {
+        return 1 << reason.ordinal();
+    }
+}
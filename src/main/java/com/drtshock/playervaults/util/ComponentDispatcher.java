@@ -1,21 +1,36 @@
 package com.drtshock.playervaults.util;
 
 import com.google.gson.JsonElement;
+import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.ComponentLike;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
 import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.chat.ComponentSerializer;
 import org.bukkit.command.CommandSender;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ComponentDispatcher {
+    private static final int CACHE_LIMIT = 256;
+
     private static boolean isPaper;
     private static MethodHandle sendMessage;
     private static MethodHandle deserialize;
     private static Object gsonSerializer;
 
+    // Our component - server's component (Paper) or BaseComponent (Spigot), for static messages
+    private static final Map<Component, Object> converted = new ConcurrentHashMap<>();
+
     static {
         try {
             Class<?> audienceClass = Class.forName("net..kyori.adventure.Audience".replace("..", "."));
@@ -40,15 +55,102 @@ public class ComponentDispatcher {
     }
 
     public static void send(CommandSender commandSender, ComponentLike component) {
+        dispatch(commandSender, convert(component.asComponent()));
+    }
+
+    /**
+     * Sends a component that will be sent again unchanged, such as a translation line without placeholders,
+     * converting it only the first time.
+     *
+     * @param commandSender recipient
+     * @param component component to send
+     */
+    public static void sendStatic(CommandSender commandSender, Component component) {
+        Object nativeComponent = converted.get(component);
+        if (nativeComponent == null) {
+            nativeComponent = convert(component);
+            if (converted.size() < CACHE_LIMIT) {
+                converted.put(component, nativeComponent);
+            }
+        }
+        dispatch(commandSender, nativeComponent);
+    }
+
+    /**
+     * Forgets previously converted static components, such as after the translations are reloaded.
+     */
+    public static void clearCache() {
+        converted.clear();
+    }
+
+    private static Object convert(Component component) {
         if (isPaper) {
             try {
-                Object comp = deserialize.invokeExact(gsonSerializer, GsonComponentSerializer.gson().serializeToTree(component.asComponent()));
-                sendMessage.invoke(commandSender, comp);
+                return deserialize.invokeExact(gsonSerializer, GsonComponentSerializer.gson().serializeToTree(component));
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+        BaseComponent bungee = toBungee(component);
+        return bungee != null ? bungee : ComponentSerializer.deserialize(GsonComponentSerializer.gson().serializeToTree(component));
+    }
+
+    private static void dispatch(CommandSender commandSender, Object nativeComponent) {
+        if (isPaper) {
+            try {
+                sendMessage.invoke(commandSender, nativeComponent);
             } catch (Throwable e) {
                 throw new RuntimeException(e);
             }
         } else {
-            commandSender.spigot().sendMessage(ComponentSerializer.deserialize(GsonComponentSerializer.gson().serializeToTree(component.asComponent())));
+            commandSender.spigot().sendMessage((BaseComponent) nativeComponent);
+        }
+    }
+
+    /**
+     * Converts plain styled text directly, which covers everything our translations produce by default.
+     *
+     * @return converted component, or null if anything beyond text, color and decorations is present
+     */
+    private static BaseComponent toBungee(Component component) {
+        if (!(component instanceof TextComponent text)) {
+            return null;
+        }
+        Style style = text.style();
+        if (style.clickEvent() != null || style.hoverEvent() != null || style.shadowColor() != null) {
+            return null;
         }
+        net.md_5.bungee.api.chat.TextComponent result = new net.md_5.bungee.api.chat.TextComponent(text.content());
+        TextColor color = style.color();
+        if (color != null) {
+            result.setColor(color instanceof NamedTextColor named ? ChatColor.of(NamedTextColor.NAMES.key(named)) : ChatColor.of(color.asHexString()));
+        }
+        result.setBold(state(style.decoration(TextDecoration.BOLD)));
+        result.setItalic(state(style.decoration(TextDecoration.ITALIC)));
+        result.setUnderlined(state(style.decoration(TextDecoration.UNDERLINED)));
+        result.setStrikethrough(state(style.decoration(TextDecoration.STRIKETHROUGH)));
+        result.setObfuscated(state(style.decoration(TextDecoration.OBFUSCATED)));
+        if (style.font() != null) {
+            result.setFont(style.font().asString());
+        }
+        if (style.insertion() != null) {
+            result.setInsertion(style.insertion());
+        }
+        for (Component child : text.children()) {
+            BaseComponent converted = toBungee(child);
+            if (converted == null) {
+                return null;
+            }
+            result.addExtra(converted);
+        }
+        return result;
+    }
+
+    private static Boolean state(TextDecoration.State state) {
+        return switch (state) {
+            case TRUE -> Boolean.TRUE;
+            case FALSE -> Boolean.FALSE;
+            case NOT_SET -> null;
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A token bucket limiting how many bytes per second background jobs move to and from storage.
+ * <p>
+ * Up to one second's worth of unused budget is saved up, so short bursts aren't slowed down.
+ */
+public final class IoBudget {
+    /**
+     * A budget that never waits.
+     */
+    public static final IoBudget UNLIMITED = new IoBudget(0);
+
+    private final long bytesPerSecond;
+    private double available;
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * Creates a budget.
+     *
+     * @param bytesPerSecond bytes allowed per second, 0 or less for no limit
+     */
+    public IoBudget(long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        this.available = this.bytesPerSecond;
+    }
+
+    /**
+     * Creates a budget from a configured number of kilobytes per second.
+     *
+     * @param kilobytesPerSecond kilobytes allowed per second, 0 or less for no limit
+     * @return budget
+     */
+    public static IoBudget ofKilobytes(int kilobytesPerSecond) {
+        return kilobytesPerSecond <= 0 ? UNLIMITED : new IoBudget(kilobytesPerSecond * 1024L);
+    }
+
+    /**
+     * Takes bytes from the budget, waiting until enough has built up. Concurrent callers queue up behind each other,
+     * as each one reserves its bytes before waiting.
+     *
+     * @param bytes bytes about to be read or written
+     */
+    public void acquire(long bytes) {
+        if (this.bytesPerSecond == 0 || bytes <= 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            this.available = Math.min(this.bytesPerSecond, this.available + (now - this.lastRefill) * this.bytesPerSecond / (double) TimeUnit.SECONDS.toNanos(1));
+            this.lastRefill = now;
+            this.available -= bytes;
+            wait = this.available >= 0 ? 0 : (long) (-this.available * TimeUnit.SECONDS.toNanos(1) / this.bytesPerSecond);
+        }
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+}
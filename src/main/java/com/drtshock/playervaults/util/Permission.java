@@ -9,7 +9,13 @@ public class Permission {
     public static final String CONVERT = PREFIX + "convert";
     public static final String DELETE = PREFIX + "delete";
     public static final String DELETE_ALL = PREFIX + "delete.all";
+    public static final String EXPORT = PREFIX + "export";
     public static final String FREE = PREFIX + "free";
+    public static final String IMPORT = PREFIX + "import";
+    public static final String JOBS = PREFIX + "jobs";
+    public static final String MUTATE = PREFIX + "mutate";
+    public static final String SEARCH = PREFIX + "search";
+    public static final String STATS = PREFIX + "stats";
 
     public static final String SIGNS_BYPASS = PREFIX + "signs.bypass";
     public static final String SIGNS_USE = PREFIX + "signs.use";
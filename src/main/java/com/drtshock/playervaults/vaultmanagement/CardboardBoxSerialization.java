@@ -1,18 +1,18 @@
 package com.drtshock.playervaults.vaultmanagement;
 
 import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.stats.VaultEvents;
+import com.drtshock.playervaults.stats.VaultStats;
 import dev.kitteh.cardboardbox.CardboardBox;
 import org.bukkit.Material;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
@@ -21,31 +21,69 @@ public class CardboardBoxSerialization {
     private record BadData(String message, String data) {
     }
 
+    // Returned for every vault with no data, so must never be modified
+    private static final ItemStack[] EMPTY_VAULT = new ItemStack[6 * 9];
+    private static final int LINE_LENGTH = 76;
+    private static final byte[] BASE64 = new byte[128];
+
+    static {
+        Arrays.fill(BASE64, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
     public static String toStorage(Inventory inventory, String target) {
+        return toStorage(inventory.getContents(), target);
+    }
+
+    public static String toStorage(ItemStack[] contents, String target) {
+        long start = VaultStats.start();
+        VaultEvents.Encode event = new VaultEvents.Encode();
+        event.begin();
         try {
-            return Base64Coder.encodeLines(writeInventory(inventory.getContents()));
+            byte[][] items = new byte[contents.length][];
+            for (int i = 0; i < contents.length; i++) {
+                items[i] = CardboardBox.serializeItem(contents[i]);
+            }
+            String encoded = frame(items);
+            if (event.shouldCommit()) {
+                event.holder = target;
+                event.slots = contents.length;
+                event.bytes = encoded.length();
+                event.commit();
+            }
+            return encoded;
         } catch (Exception e) {
             throw PlayerVaults.getInstance().addException(new IllegalStateException("Failed to save items for " + target, e));
+        } finally {
+            VaultStats.record(VaultStats.Timer.ENCODE, start);
         }
     }
 
+    /**
+     * Decodes stored vault contents. A vault with no data gives a shared array of empty slots, which must not be
+     * modified.
+     *
+     * @param data serialized contents, may be null
+     * @param target holder, for logging
+     * @return contents, or null if they couldn't be read
+     */
     public static ItemStack[] fromStorage(String data, String target) {
         if (data == null || data.isEmpty()) {
-            ItemStack[] i = new ItemStack[6 * 9];
-            for (int x = 0; x < i.length; x++) {
-                i[x] = new ItemStack(Material.AIR);
-            }
-            return i;
+            return EMPTY_VAULT;
         }
 
+        long start = VaultStats.start();
+        VaultEvents.Decode event = new VaultEvents.Decode();
+        event.begin();
         try {
-            DataInputStream input = new DataInputStream(new ByteArrayInputStream(Base64Coder.decodeLines(data)));
-            ItemStack[] contents = new ItemStack[input.readInt()];
+            byte[][] items = unframe(data);
+            ItemStack[] contents = new ItemStack[items.length];
             List<BadData> exceptional = new ArrayList<>();
             for (int i = 0; i < contents.length; i++) {
-                int len = input.readInt();
-                byte[] itemBytes = new byte[len];
-                input.readFully(itemBytes);
+                byte[] itemBytes = items[i];
                 try {
                     contents[i] = CardboardBox.deserializeItem(itemBytes);
                 } catch (Exception e) {
@@ -62,25 +100,117 @@ public class CardboardBoxSerialization {
                 PlayerVaults.getInstance().getLogger().log(Level.SEVERE, "Failed to load items for " + target);
                 PlayerVaults.getInstance().getLogger().log(Level.SEVERE, "Items:\n" + output);
             }
+            if (event.shouldCommit()) {
+                event.holder = target;
+                event.slots = contents.length;
+                event.bytes = data.length();
+                event.commit();
+            }
             return contents;
         } catch (Exception e) {
             PlayerVaults.getInstance().addException(new IllegalStateException("Failed to load items for " + target + "\n" + data, e));
             PlayerVaults.getInstance().getLogger().log(Level.SEVERE, "Failed to load items for " + target, e);
             PlayerVaults.getInstance().getLogger().log(Level.SEVERE, "Data: " + data);
             return null;
+        } finally {
+            VaultStats.record(VaultStats.Timer.DECODE, start);
+        }
+    }
+
+    /**
+     * Frames serialized items, each prefixed with its length after the item count, and base64 encodes them for
+     * storage. Kept apart from item serialization, which needs a running server, so it can be measured on its own.
+     *
+     * @param items serialized items
+     * @return stored form
+     */
+    static String frame(byte[][] items) {
+        try (StorageBuffers.Buffer buffer = StorageBuffers.acquire()) {
+            buffer.writeInt(items.length);
+            for (byte[] item : items) {
+                buffer.writeInt(item.length);
+                buffer.write(item);
+            }
+            return Base64Coder.encodeLines(buffer.array(), 0, buffer.size(), LINE_LENGTH, System.lineSeparator());
+        }
+    }
+
+    /**
+     * Reverses {@link #frame(byte[][])}, slicing every item out of one pooled buffer.
+     *
+     * @param data stored form
+     * @return serialized items
+     * @throws EOFException if the data is cut short
+     */
+    static byte[][] unframe(String data) throws EOFException {
+        try (StorageBuffers.Buffer buffer = StorageBuffers.acquire()) {
+            decodeLines(data, buffer);
+            byte[] input = buffer.array();
+            int end = buffer.size();
+            byte[][] items = new byte[readInt(input, 0, end)][];
+            int position = 4;
+            for (int i = 0; i < items.length; i++) {
+                int len = readInt(input, position, end);
+                position += 4;
+                if (len < 0 || len > end - position) {
+                    throw new EOFException("Item " + i + " runs past the end of the data");
+                }
+                // CardboardBox only takes whole arrays, so each item is still copied out of the shared buffer
+                items[i] = Arrays.copyOfRange(input, position, position + len);
+                position += len;
+            }
+            return items;
         }
     }
 
     public static byte[] writeInventory(ItemStack[] contents) throws IOException {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(bytes);
-        out.writeInt(contents.length);
+        try (StorageBuffers.Buffer buffer = StorageBuffers.acquire()) {
+            writeInventory(contents, buffer);
+            return buffer.toByteArray();
+        }
+    }
+
+    private static void writeInventory(ItemStack[] contents, StorageBuffers.Buffer buffer) {
+        buffer.writeInt(contents.length);
         for (ItemStack content : contents) {
             byte[] item = CardboardBox.serializeItem(content);
-            out.writeInt(item.length);
-            out.write(item);
+            buffer.writeInt(item.length);
+            buffer.write(item);
+        }
+    }
+
+    private static int readInt(byte[] input, int position, int end) throws EOFException {
+        if (position + 4 > end) {
+            throw new EOFException("Data ends at " + end);
+        }
+        return ((input[position] & 0xFF) << 24) | ((input[position + 1] & 0xFF) << 16) | ((input[position + 2] & 0xFF) << 8) | (input[position + 3] & 0xFF);
+    }
+
+    // Same as Base64Coder.decodeLines, but straight into a pooled buffer instead of through two new arrays
+    private static void decodeLines(String data, StorageBuffers.Buffer buffer) {
+        byte[] out = buffer.reserve(data.length() / 4 * 3 + 3);
+        int size = 0;
+        int bits = 0;
+        int accumulated = 0;
+        for (int i = 0; i < data.length(); i++) {
+            char c = data.charAt(i);
+            if (c == ' ' || c == '\r' || c == '\n' || c == '\t') {
+                continue;
+            }
+            if (c == '=') {
+                break;
+            }
+            int value = c < 128 ? BASE64[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Illegal character in Base64 encoded data.");
+            }
+            accumulated = (accumulated << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out[size++] = (byte) (accumulated >> bits);
+            }
         }
-        out.close();
-        return bytes.toByteArray();
+        buffer.setSize(size);
     }
 }
@@ -18,6 +18,7 @@
 
 package com.drtshock.playervaults.vaultmanagement;
 
+import com.drtshock.playervaults.Conversion;
 import com.drtshock.playervaults.PlayerVaults;
 import com.drtshock.playervaults.util.Permission;
 import net.milkbowl.vault.economy.Economy;
@@ -123,6 +124,7 @@ public class EconomyOperations {
             return true;
         }
 
+        Conversion.awaitHolder(player.getUniqueId().toString());
         File playerFile = new File(PlayerVaults.getInstance().getVaultData(), player.getUniqueId() + ".yml");
         if (playerFile.exists()) {
             YamlConfiguration playerData = YamlConfiguration.loadConfiguration(playerFile);
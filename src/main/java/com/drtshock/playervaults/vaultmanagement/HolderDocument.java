@@ -0,0 +1,102 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Renders a holder's file as yaml, reusing the text of every entry that hasn't changed since the last render, so
+ * saving one vault dumps that vault rather than the whole document.
+ * <p>
+ * Each entry is dumped on its own and indented into its section, which reads back the same as a whole-document dump.
+ * Not thread safe, a holder's document is only rendered from its mailbox.
+ */
+final class HolderDocument {
+    private static final String INDENT = "  ";
+
+    private record Rendered(Object value, String text) {
+    }
+
+    // Path - last value rendered there and its text
+    private Map<String, Rendered> rendered = new HashMap<>();
+
+    /**
+     * Renders a holder's file.
+     *
+     * @param yaml file to render, made of sections and scalar values as holder files are
+     * @return yaml document
+     */
+    String render(YamlConfiguration yaml) {
+        Map<String, Rendered> next = new HashMap<>();
+        StringBuilder out = new StringBuilder();
+        this.render(yaml, "", "", next, out);
+        // Only entries still present are kept, so removed vaults don't linger
+        this.rendered = next;
+        return out.toString();
+    }
+
+    private void render(ConfigurationSection section, String prefix, String indent, Map<String, Rendered> next, StringBuilder out) {
+        for (Map.Entry<String, Object> entry : section.getValues(false).entrySet()) {
+            String path = prefix + entry.getKey();
+            if (entry.getValue() instanceof ConfigurationSection child) {
+                if (child.getKeys(false).isEmpty()) {
+                    out.append(indent).append(entry.getKey()).append(": {}\n");
+                    continue;
+                }
+                out.append(indent).append(entry.getKey()).append(":\n");
+                this.render(child, path + ".", indent + INDENT, next, out);
+                continue;
+            }
+            Rendered previous = this.rendered.get(path);
+            if (previous == null || !Objects.equals(previous.value(), entry.getValue())) {
+                previous = new Rendered(entry.getValue(), dump(entry.getKey(), entry.getValue()));
+            }
+            next.put(path, previous);
+            appendIndented(out, previous.text(), indent);
+        }
+    }
+
+    private static String dump(String key, Object value) {
+        YamlConfiguration single = new YamlConfiguration();
+        single.set(key, value);
+        return single.saveToString();
+    }
+
+    private static void appendIndented(StringBuilder out, String text, String indent) {
+        if (indent.isEmpty()) {
+            out.append(text);
+            return;
+        }
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            if (end - start > 1) {
+                out.append(indent);
+            }
+            out.append(text, start, end);
+            start = end;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import com.drtshock.playervaults.stats.VaultStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs storage operations one at a time per holder, in the order they were submitted, on virtual threads.
+ * <p>
+ * Operations for one holder never overlap, so they need no locks between each other, while different holders run
+ * fully in parallel. An operation that submits another one for its own holder runs it straight away instead of
+ * queueing behind itself.
+ */
+final class HolderMailbox {
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("PlayerVaults Storage #", 0).factory());
+    // Last operation queued for each holder, removed once it finishes with nothing queued after it
+    private final Map<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> current = new ThreadLocal<>();
+
+    /**
+     * Queues an operation behind everything already queued for the holder.
+     *
+     * @param holder holder key
+     * @param operation operation
+     * @param <T> result type
+     * @return future completed with the operation's result
+     */
+    <T> CompletableFuture<T> submit(String holder, Supplier<T> operation) {
+        if (holder.equals(this.current.get())) {
+            try {
+                return CompletableFuture.completedFuture(operation.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        long queued = VaultStats.start();
+        CompletableFuture<T> next = new CompletableFuture<>();
+        CompletableFuture<?> previous = this.tails.put(holder, next);
+        Runnable run = () -> this.executor.execute(() -> {
+            VaultStats.record(VaultStats.Timer.MAILBOX_WAIT, queued);
+            this.current.set(holder);
+            try {
+                next.complete(operation.get());
+            } catch (Throwable t) {
+                next.completeExceptionally(t);
+            } finally {
+                this.current.remove();
+                this.tails.remove(holder, next);
+            }
+        });
+        if (previous == null) {
+            run.run();
+        } else {
+            previous.whenComplete((result, error) -> run.run());
+        }
+        return next;
+    }
+
+    /**
+     * Waits for an operation, rethrowing what it threw.
+     *
+     * @param operation future from {@link #submit(String, Supplier)}
+     * @param <T> result type
+     * @return the operation's result
+     */
+    static <T> T join(CompletableFuture<T> operation) {
+        try {
+            return operation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets how many holders have operations queued or running.
+     *
+     * @return busy holders
+     */
+    int getBusyHolders() {
+        return this.tails.size();
+    }
+
+    /**
+     * Waits for everything queued so far to finish.
+     *
+     * @param timeout longest time to wait
+     * @param unit unit of the timeout
+     * @return true if everything finished in time
+     */
+    boolean await(long timeout, TimeUnit unit) {
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        // Failures were already reported to whoever queued them, only wait for them to finish
+        this.tails.values().forEach(tail -> pending.add(tail.handle((result, error) -> null)));
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).get(timeout, unit);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.tasks.JobScheduler;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Inverted index of what is stored in every vault, kept up to date as vaults are saved so staff can find items without
+ * loading vaults one by one.
+ * <p>
+ * Every stored item is reduced to an {@link Entry}; each of its terms (material, custom model data, enchantments and a
+ * hash of the display name) maps to the vaults containing an item with that term.
+ */
+public class ItemIndex {
+    private static final int FORMAT = 1;
+
+    /**
+     * A vault of a holder.
+     */
+    public record VaultRef(String holder, int number) {
+    }
+
+    /**
+     * What the index knows about one stored item.
+     */
+    public record Entry(int slot, Material material, int modelData, String[] enchantments, int nameHash, int amount) {
+        private void terms(Set<String> into) {
+            into.add(materialTerm(this.material));
+            if (this.modelData != 0) {
+                into.add(modelDataTerm(this.modelData));
+            }
+            for (String enchantment : this.enchantments) {
+                into.add(enchantmentTerm(enchantment));
+            }
+            if (this.nameHash != 0) {
+                into.add(nameTerm(this.nameHash));
+            }
+        }
+    }
+
+    /**
+     * A search hit.
+     */
+    public record Hit(VaultRef vault, Entry entry) {
+    }
+
+    private final PlayerVaults plugin;
+    private final Path file;
+    private final Map<VaultRef, Entry[]> byVault = new ConcurrentHashMap<>();
+    private final Map<String, Set<VaultRef>> byTerm = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    // Held while changing both maps, so a vault's entries and its terms never disagree
+    private final ReentrantLock lock = new ReentrantLock();
+    // Vaults indexed or saved since the running rebuild started, null if none is running
+    private volatile Set<VaultRef> rebuildSeen;
+    private volatile boolean ready;
+
+    public ItemIndex(PlayerVaults plugin) {
+        this.plugin = plugin;
+        this.file = plugin.getDataFolder().toPath().resolve("itemindex.dat");
+    }
+
+    public static String materialTerm(Material material) {
+        return "m:" + material.name();
+    }
+
+    public static String modelDataTerm(int modelData) {
+        return "c:" + modelData;
+    }
+
+    public static String enchantmentTerm(String key) {
+        return "e:" + key.toLowerCase(Locale.ROOT);
+    }
+
+    public static String nameTerm(int hash) {
+        return "n:" + hash;
+    }
+
+    /**
+     * Hashes a display name the way the index does, ignoring colors and case.
+     *
+     * @param name display name
+     * @return hash, never 0
+     */
+    public static int nameHash(String name) {
+        String stripped = ChatColor.stripColor(name);
+        int hash = (stripped == null ? name : stripped).trim().toLowerCase(Locale.ROOT).hashCode();
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Gets if the index covers all stored vaults, either loaded from disk or built by {@link #reindex(JobScheduler.Job)}.
+     *
+     * @return true if searches are complete
+     */
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    /**
+     * Replaces what the index knows about a vault. Items are read on the calling thread.
+     *
+     * @param holder holder key
+     * @param number vault number
+     * @param contents stored contents, null to remove the vault
+     */
+    public void update(String holder, int number, ItemStack[] contents) {
+        VaultRef ref = new VaultRef(holder, number);
+        Entry[] entries = contents == null ? null : extract(contents);
+        this.lock.lock();
+        try {
+            Set<VaultRef> seen = this.rebuildSeen;
+            if (seen != null) {
+                seen.add(ref);
+            }
+            this.replace(ref, entries);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // Only called while holding the lock
+    private void replace(VaultRef ref, Entry[] entries) {
+        Entry[] previous = entries == null || entries.length == 0 ? this.byVault.remove(ref) : this.byVault.put(ref, entries);
+
+        Set<String> oldTerms = new HashSet<>();
+        Set<String> newTerms = new HashSet<>();
+        if (previous != null) {
+            for (Entry entry : previous) {
+                entry.terms(oldTerms);
+            }
+        }
+        if (entries != null) {
+            for (Entry entry : entries) {
+                entry.terms(newTerms);
+            }
+        }
+        for (String term : oldTerms) {
+            if (!newTerms.contains(term)) {
+                this.byTerm.computeIfPresent(term, (key, refs) -> {
+                    refs.remove(ref);
+                    return refs.isEmpty() ? null : refs;
+                });
+            }
+        }
+        for (String term : newTerms) {
+            this.byTerm.computeIfAbsent(term, key -> ConcurrentHashMap.newKeySet()).add(ref);
+        }
+        if (previous != null || (entries != null && entries.length > 0)) {
+            this.dirty.set(true);
+        }
+    }
+
+    /**
+     * Forgets every vault of a holder.
+     *
+     * @param holder holder key
+     */
+    public void removeHolder(String holder) {
+        for (VaultRef ref : new ArrayList<>(this.byVault.keySet())) {
+            if (ref.holder().equals(holder)) {
+                this.update(holder, ref.number(), null);
+            }
+        }
+    }
+
+    /**
+     * Finds stored items matching every given term.
+     *
+     * @param terms terms built with the static term methods
+     * @param limit maximum hits to return
+     * @return hits, and the total number of matching items
+     */
+    public Map.Entry<List<Hit>, Integer> search(List<String> terms, int limit) {
+        Set<VaultRef> candidates = null;
+        for (String term : terms) {
+            Set<VaultRef> refs = this.byTerm.getOrDefault(term, Collections.emptySet());
+            if (candidates == null) {
+                candidates = new HashSet<>(refs);
+            } else {
+                candidates.retainAll(refs);
+            }
+        }
+        List<Hit> hits = new ArrayList<>();
+        int total = 0;
+        if (candidates == null) {
+            return Map.entry(hits, total);
+        }
+        Set<String> itemTerms = new HashSet<>();
+        for (VaultRef ref : candidates) {
+            Entry[] entries = this.byVault.get(ref);
+            if (entries == null) {
+                continue;
+            }
+            for (Entry entry : entries) {
+                itemTerms.clear();
+                entry.terms(itemTerms);
+                if (itemTerms.containsAll(terms)) {
+                    total++;
+                    if (hits.size() < limit) {
+                        hits.add(new Hit(ref, entry));
+                    }
+                }
+            }
+        }
+        return Map.entry(hits, total);
+    }
+
+    /**
+     * Rebuilds the index from every stored vault, decoding holders in parallel, then forgets vaults that were neither
+     * found nor saved meanwhile. Should only be run as a background job. If the job is cancelled the index is left
+     * incomplete until the next rebuild.
+     *
+     * @param job job doing the rebuild
+     * @return the number of vaults indexed
+     */
+    public int reindex(JobScheduler.Job job) {
+        long start = System.currentTimeMillis();
+        VaultManager vaultManager = VaultManager.getInstance();
+        Semaphore inFlight = new Semaphore(job.getThreads() * 4);
+        AtomicInteger vaults = new AtomicInteger();
+        ExecutorService pool = job.newPool("Reindex");
+        Set<VaultRef> seen = ConcurrentHashMap.newKeySet();
+        this.rebuildSeen = seen;
+        boolean cancelled = false;
+        for (String holder : vaultManager.getHolderKeys()) {
+            try {
+                job.checkpoint();
+            } catch (CancellationException e) {
+                cancelled = true;
+                break;
+            }
+            inFlight.acquireUninterruptibly();
+            pool.execute(() -> {
+                try {
+                    Map<Integer, String> raw = vaultManager.getRawVaults(holder);
+                    job.transfer(raw.values().stream().mapToLong(String::length).sum());
+                    raw.forEach((number, data) -> {
+                        ItemStack[] contents = CardboardBoxSerialization.fromStorage(data, holder);
+                        if (contents != null) {
+                            this.update(holder, number, contents);
+                            vaults.incrementAndGet();
+                        }
+                    });
+                } catch (Exception e) {
+                    this.plugin.getLogger().log(Level.WARNING, "Failed to index vaults of " + holder, e);
+                } finally {
+                    inFlight.release();
+                    job.setProgress(vaults.get() + " vaults indexed");
+                }
+            });
+        }
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                this.plugin.getLogger().info("Indexing vaults, " + vaults.get() + " done so far...");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.rebuildSeen = null;
+            return vaults.get();
+        }
+        this.lock.lock();
+        try {
+            this.rebuildSeen = null;
+            if (cancelled) {
+                return vaults.get();
+            }
+            for (VaultRef ref : new ArrayList<>(this.byVault.keySet())) {
+                if (!seen.contains(ref)) {
+                    this.replace(ref, null);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        this.ready = true;
+        this.save();
+        PlayerVaults.debug("Indexed " + vaults.get() + " vaults", start);
+        return vaults.get();
+    }
+
+    /**
+     * Loads the index saved by a previous run, if any. Vaults saved before loading finishes are kept.
+     */
+    public void load() {
+        if (!Files.exists(this.file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(this.file))))) {
+            if (in.readInt() != FORMAT) {
+                return;
+            }
+            int vaults = in.readInt();
+            for (int v = 0; v < vaults; v++) {
+                String holder = in.readUTF();
+                int number = in.readInt();
+                Entry[] entries = new Entry[in.readInt()];
+                for (int i = 0; i < entries.length; i++) {
+                    int slot = in.readInt();
+                    Material material = Material.matchMaterial(in.readUTF());
+                    int modelData = in.readInt();
+                    String[] enchantments = new String[in.readInt()];
+                    for (int e = 0; e < enchantments.length; e++) {
+                        enchantments[e] = in.readUTF();
+                    }
+                    entries[i] = new Entry(slot, material == null ? Material.AIR : material, modelData, enchantments, in.readInt(), in.readInt());
+                }
+                VaultRef ref = new VaultRef(holder, number);
+                this.lock.lock();
+                try {
+                    if (!this.byVault.containsKey(ref)) {
+                        this.replace(ref, entries);
+                    }
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+            this.ready = true;
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.WARNING, "Could not load the item index, run /pvsearch reindex to rebuild it", e);
+        }
+    }
+
+    /**
+     * Writes the index to disk if it changed since the last write.
+     */
+    public void save() {
+        if (!this.dirty.getAndSet(false)) {
+            return;
+        }
+        Path temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                List<Map.Entry<VaultRef, Entry[]>> vaults = new ArrayList<>(this.byVault.entrySet());
+                out.writeInt(FORMAT);
+                out.writeInt(vaults.size());
+                for (Map.Entry<VaultRef, Entry[]> vault : vaults) {
+                    out.writeUTF(vault.getKey().holder());
+                    out.writeInt(vault.getKey().number());
+                    out.writeInt(vault.getValue().length);
+                    for (Entry entry : vault.getValue()) {
+                        out.writeInt(entry.slot());
+                        out.writeUTF(entry.material().name());
+                        out.writeInt(entry.modelData());
+                        out.writeInt(entry.enchantments().length);
+                        for (String enchantment : entry.enchantments()) {
+                            out.writeUTF(enchantment);
+                        }
+                        out.writeInt(entry.nameHash());
+                        out.writeInt(entry.amount());
+                    }
+                }
+            }
+            Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            this.dirty.set(true);
+            this.plugin.getLogger().log(Level.WARNING, "Could not save the item index", e);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Entry[] extract(ItemStack[] contents) {
+        List<Entry> entries = new ArrayList<>();
+        for (int slot = 0; slot < contents.length; slot++) {
+            ItemStack item = contents[slot];
+            if (item == null || item.getType().isAir()) {
+                continue;
+            }
+            int modelData = 0;
+            int nameHash = 0;
+            Set<String> enchantments = new HashSet<>();
+            for (Enchantment enchantment : item.getEnchantments().keySet()) {
+                enchantments.add(enchantment.getKey().toString());
+            }
+            if (item.hasItemMeta()) {
+                ItemMeta meta = item.getItemMeta();
+                if (meta.hasCustomModelData()) {
+                    modelData = meta.getCustomModelData();
+                }
+                if (meta.hasDisplayName()) {
+                    nameHash = nameHash(meta.getDisplayName());
+                }
+                if (meta instanceof EnchantmentStorageMeta stored) {
+                    for (Enchantment enchantment : stored.getStoredEnchants().keySet()) {
+                        enchantments.add(enchantment.getKey().toString());
+                    }
+                }
+            }
+            entries.add(new Entry(slot, item.getType(), modelData, enchantments.toArray(new String[0]), nameHash, item.getAmount()));
+        }
+        return entries.toArray(new Entry[0]);
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps the files of holders that aren't in use off the heap, as their raw vault payloads rather than base64 strings in
+ * a yaml tree, so many more can stay warm without costing the server's heap.
+ * <p>
+ * Entries are direct buffers, optionally deflated, evicted least recently used first to stay within a byte budget.
+ * They are turned back into yaml only when something needs the holder again, and only if the file on disk hasn't
+ * changed since they were parked.
+ */
+public final class PayloadCache {
+    private record Entry(ByteBuffer segment, int rawLength, boolean compressed, long modified, long length) {
+        private boolean matches(File file) {
+            return file.lastModified() == this.modified && file.length() == this.length;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long budget;
+    private final boolean compress;
+    private long used;
+
+    /**
+     * Creates a cache.
+     *
+     * @param budget most bytes of entries to keep, 0 to keep nothing
+     * @param compress whether to deflate entries
+     */
+    PayloadCache(long budget, boolean compress) {
+        this.budget = Math.max(0, budget);
+        this.compress = compress;
+    }
+
+    /**
+     * Packs a holder's file into the cache, evicting the least recently used holders if over budget. The yaml must
+     * match what is on disk.
+     *
+     * @param holderKey holder
+     * @param yaml holder's file
+     * @param file file it was loaded from
+     */
+    void put(String holderKey, YamlConfiguration yaml, File file) {
+        if (this.budget == 0 || !file.exists()) {
+            return;
+        }
+        Entry entry;
+        try {
+            entry = this.encode(yaml, file.lastModified(), file.length());
+        } catch (IllegalArgumentException e) {
+            return; // A vault that isn't valid base64, it's read from the file instead
+        }
+        if (entry.segment().capacity() > this.budget) {
+            this.remove(holderKey);
+            return;
+        }
+        synchronized (this.entries) {
+            Entry previous = this.entries.put(holderKey, entry);
+            if (previous != null) {
+                this.used -= previous.segment().capacity();
+            }
+            this.used += entry.segment().capacity();
+            Iterator<Map.Entry<String, Entry>> eldest = this.entries.entrySet().iterator();
+            while (this.used > this.budget && eldest.hasNext()) {
+                this.used -= eldest.next().getValue().segment().capacity();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Unpacks a holder's file, leaving it in the cache.
+     *
+     * @param holderKey holder
+     * @param file holder's file on disk, to check the entry is still current
+     * @return holder's file, or null if not cached or changed since
+     */
+    YamlConfiguration peek(String holderKey, File file) {
+        Entry entry;
+        synchronized (this.entries) {
+            entry = this.entries.get(holderKey);
+        }
+        if (entry != null && !entry.matches(file)) {
+            this.remove(holderKey);
+            return null;
+        }
+        return entry == null ? null : this.decode(holderKey, entry);
+    }
+
+    /**
+     * Unpacks a holder's file and removes it from the cache, for when it is going back to being used.
+     *
+     * @param holderKey holder
+     * @param file holder's file on disk, to check the entry is still current
+     * @return holder's file, or null if not cached or changed since
+     */
+    YamlConfiguration take(String holderKey, File file) {
+        Entry entry;
+        synchronized (this.entries) {
+            entry = this.entries.remove(holderKey);
+            if (entry != null) {
+                this.used -= entry.segment().capacity();
+            }
+        }
+        return entry == null || !entry.matches(file) ? null : this.decode(holderKey, entry);
+    }
+
+    /**
+     * Drops a holder, for when their file has changed.
+     *
+     * @param holderKey holder
+     */
+    void remove(String holderKey) {
+        synchronized (this.entries) {
+            Entry entry = this.entries.remove(holderKey);
+            if (entry != null) {
+                this.used -= entry.segment().capacity();
+            }
+        }
+    }
+
+    /**
+     * Gets how many holders are cached.
+     *
+     * @return holders
+     */
+    public int getHolders() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * Gets the off-heap bytes held by entries.
+     *
+     * @return bytes used
+     */
+    public long getUsedBytes() {
+        synchronized (this.entries) {
+            return this.used;
+        }
+    }
+
+    public long getBudget() {
+        return this.budget;
+    }
+
+    // Layout: everything but the vaults as yaml, then each vault's number and decoded payload
+    private Entry encode(YamlConfiguration yaml, long modified, long length) {
+        YamlConfiguration rest = new YamlConfiguration();
+        Map<Integer, String> vaults = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> value : yaml.getValues(true).entrySet()) {
+            if (value.getValue() instanceof ConfigurationSection) {
+                continue;
+            }
+            int number = vaultNumber(value.getKey());
+            if (number >= 0 && value.getValue() instanceof String data) {
+                vaults.put(number, data);
+            } else {
+                rest.set(value.getKey(), value.getValue());
+            }
+        }
+
+        try (StorageBuffers.Buffer raw = StorageBuffers.acquire()) {
+            byte[] restBytes = rest.saveToString().getBytes(StandardCharsets.UTF_8);
+            raw.writeInt(restBytes.length);
+            raw.write(restBytes);
+            raw.writeInt(vaults.size());
+            for (Map.Entry<Integer, String> vault : vaults.entrySet()) {
+                byte[] payload = Base64Coder.decodeLines(vault.getValue());
+                raw.writeInt(vault.getKey());
+                raw.writeInt(payload.length);
+                raw.write(payload);
+            }
+
+            if (this.compress) {
+                try (StorageBuffers.Buffer packed = StorageBuffers.acquire()) {
+                    int size = deflate(raw, packed);
+                    if (size < raw.size()) {
+                        return new Entry(ByteBuffer.allocateDirect(size).put(packed.array(), 0, size).flip(), raw.size(), true, modified, length);
+                    }
+                }
+            }
+            return new Entry(ByteBuffer.allocateDirect(raw.size()).put(raw.array(), 0, raw.size()).flip(), raw.size(), false, modified, length);
+        }
+    }
+
+    private YamlConfiguration decode(String holderKey, Entry entry) {
+        try (StorageBuffers.Buffer stored = StorageBuffers.acquire(); StorageBuffers.Buffer raw = StorageBuffers.acquire()) {
+            int length = entry.segment().capacity();
+            entry.segment().duplicate().get(stored.reserve(length), 0, length);
+            stored.setSize(length);
+            StorageBuffers.Buffer source = stored;
+            if (entry.compressed()) {
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(stored.array(), 0, length);
+                    raw.setSize(inflater.inflate(raw.reserve(entry.rawLength()), 0, entry.rawLength()));
+                } finally {
+                    inflater.end();
+                }
+                source = raw;
+            }
+
+            ByteBuffer in = ByteBuffer.wrap(source.array(), 0, source.size());
+            int restLength = in.getInt();
+            YamlConfiguration yaml = new YamlConfiguration();
+            yaml.loadFromString(new String(source.array(), in.position(), restLength, StandardCharsets.UTF_8));
+            in.position(in.position() + restLength);
+            int vaults = in.getInt();
+            for (int i = 0; i < vaults; i++) {
+                int number = in.getInt();
+                int payload = in.getInt();
+                yaml.set("vault" + number, Base64Coder.encodeLines(source.array(), in.position(), payload, 76, System.lineSeparator()));
+                in.position(in.position() + payload);
+            }
+            return yaml;
+        } catch (DataFormatException | InvalidConfigurationException | RuntimeException e) {
+            // Shouldn't happen with data we wrote, but the file is still on disk
+            this.remove(holderKey);
+            return null;
+        }
+    }
+
+    private static int deflate(StorageBuffers.Buffer input, StorageBuffers.Buffer output) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input.array(), 0, input.size());
+            deflater.finish();
+            int size = 0;
+            while (!deflater.finished()) {
+                byte[] array = output.reserve(size + 8192);
+                size += deflater.deflate(array, size, array.length - size);
+            }
+            return size;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static int vaultNumber(String key) {
+        if (!key.startsWith("vault")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(key.substring(5));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import com.drtshock.playervaults.PlayerVaults;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Writes every open vault to disk when the plugin is disabled.
+ * <p>
+ * Contents are copied on the calling thread, then each holder's file is written once, in parallel, with a deadline.
+ */
+public class ShutdownFlusher {
+
+    private final PlayerVaults plugin;
+    private final int timeoutSeconds;
+
+    public ShutdownFlusher(PlayerVaults plugin, int timeoutSeconds) {
+        this.plugin = plugin;
+        this.timeoutSeconds = Math.max(1, timeoutSeconds);
+    }
+
+    /**
+     * Snapshots all open vaults, including ones with several viewers, and saves them.
+     *
+     * @return the number of vaults that were written before the deadline.
+     */
+    public int flush() {
+        Map<String, Map<Integer, ItemStack[]>> byHolder = this.snapshot();
+        if (byHolder.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(byHolder.size(), Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "PlayerVaults Shutdown Flush #" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<String, Future<?>> pending = new HashMap<>();
+        AtomicInteger written = new AtomicInteger();
+        byHolder.forEach((holder, vaults) -> pending.put(holder, pool.submit(() -> {
+            try {
+                VaultManager.getInstance().saveVaults(holder, vaults);
+                written.addAndGet(vaults.size());
+            } catch (Exception e) {
+                this.plugin.getLogger().log(Level.SEVERE, "Failed to save vaults " + vaults.keySet() + " for " + holder + " during shutdown", e);
+            }
+        })));
+        pool.shutdown();
+
+        try {
+            if (!pool.awaitTermination(this.timeoutSeconds, TimeUnit.SECONDS)) {
+                pending.forEach((holder, future) -> {
+                    if (!future.isDone()) {
+                        this.plugin.getLogger().severe("Vaults " + byHolder.get(holder).keySet() + " for " + holder + " were not saved within " + this.timeoutSeconds + " seconds of shutdown!");
+                    }
+                });
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+        }
+
+        PlayerVaults.debug("Flushed " + written.get() + " vaults for " + byHolder.size() + " holders", start);
+        return written.get();
+    }
+
+    private Map<String, Map<Integer, ItemStack[]>> snapshot() {
+        Map<String, Map<Integer, ItemStack[]>> byHolder = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>(this.plugin.getOpenInventories().keySet());
+        for (String key : keys) {
+            // Keys are VaultViewInfo#toString, "<holder> <number>"
+            int split = key.lastIndexOf(' ');
+            Inventory inventory = this.plugin.getOpenInventories().remove(key);
+            if (split < 1 || inventory == null) {
+                continue;
+            }
+            int number;
+            try {
+                number = Integer.parseInt(key.substring(split + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            ItemStack[] contents = inventory.getContents();
+            ItemStack[] copy = new ItemStack[contents.length];
+            for (int i = 0; i < contents.length; i++) {
+                copy[i] = contents[i] == null ? null : contents[i].clone();
+            }
+            String holder = VaultManager.normalizeHolderKey(key.substring(0, split));
+            byHolder.computeIfAbsent(holder, k -> new HashMap<>()).put(number, copy);
+        }
+        return byHolder;
+    }
+}
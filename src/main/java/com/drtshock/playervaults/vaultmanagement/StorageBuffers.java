@@ -0,0 +1,243 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Pool of reusable byte buffers for serializing vaults and reading and writing holder files, so saving and loading
+ * doesn't grow and throw away a new array every time.
+ * <p>
+ * Storage runs on a new virtual thread per operation, so buffers are pooled globally rather than per thread. For the
+ * same reason buffers never lock: a virtual thread blocking in a synchronized method pins its carrier thread.
+ */
+final class StorageBuffers {
+    private static final int RETAINED = 16;
+    private static final int INITIAL_BYTES = 16 * 1024;
+    // Buffers grown past this by an unusually large holder are dropped rather than kept around
+    private static final int MAX_RETAINED_BYTES = 4 * 1024 * 1024;
+    private static final ArrayBlockingQueue<Buffer> POOL = new ArrayBlockingQueue<>(RETAINED);
+
+    private StorageBuffers() {
+    }
+
+    /**
+     * Takes a buffer from the pool, to be returned by closing it.
+     *
+     * @return empty buffer
+     */
+    static Buffer acquire() {
+        Buffer buffer = POOL.poll();
+        if (buffer == null) {
+            buffer = new Buffer();
+        }
+        buffer.pooled = false;
+        return buffer;
+    }
+
+    /**
+     * Reads a whole file as UTF-8 through a pooled buffer.
+     *
+     * @param path file to read
+     * @return file contents
+     * @throws IOException if the file can't be read
+     */
+    static String read(Path path) throws IOException {
+        try (Buffer buffer = acquire(); FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IOException("File too large: " + path);
+            }
+            ByteBuffer target = ByteBuffer.wrap(buffer.reserve((int) length));
+            while (target.hasRemaining() && channel.read(target) >= 0) {
+                // Read until full or the file ends early
+            }
+            buffer.setSize(target.position());
+            return new String(buffer.array(), 0, buffer.size(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Writes text to a file as UTF-8 through a pooled buffer, replacing the file's contents.
+     *
+     * @param path file to write
+     * @param text text to write
+     * @return bytes written
+     * @throws IOException if the file can't be written
+     */
+    static long write(Path path, String text) throws IOException {
+        try (Buffer buffer = acquire(); FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer chars = CharBuffer.wrap(text);
+            // Holder files are nearly all base64, so start at one byte per char and grow if needed
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.reserve(text.length() + 64));
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, true);
+                if (result.isUnderflow()) {
+                    result = encoder.flush(bytes);
+                }
+                if (result.isUnderflow()) {
+                    break;
+                }
+                if (!result.isOverflow()) {
+                    result.throwException();
+                }
+                int position = bytes.position();
+                bytes = ByteBuffer.wrap(buffer.reserve(buffer.array().length * 2));
+                bytes.position(position);
+            }
+            bytes.flip();
+            long written = 0;
+            while (bytes.hasRemaining()) {
+                written += channel.write(bytes);
+            }
+            return written;
+        }
+    }
+
+    /**
+     * A growable byte buffer whose array can be used in place, without copying it out. Unlike
+     * {@link java.io.ByteArrayOutputStream} and {@link java.io.DataOutputStream} nothing is synchronized, as a buffer
+     * is only ever used by the thread that acquired it.
+     */
+    static final class Buffer extends OutputStream {
+        private byte[] buf = new byte[INITIAL_BYTES];
+        private int count;
+        private boolean pooled;
+
+        private Buffer() {
+        }
+
+        @Override
+        public void write(int b) {
+            this.reserve(this.count + 1)[this.count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b) {
+            this.write(b, 0, b.length);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            System.arraycopy(b, off, this.reserve(this.count + len), this.count, len);
+            this.count += len;
+        }
+
+        /**
+         * Writes an int, big-endian like {@link java.io.DataOutputStream#writeInt(int)}.
+         *
+         * @param value value to write
+         */
+        void writeInt(int value) {
+            byte[] array = this.reserve(this.count + 4);
+            array[this.count] = (byte) (value >>> 24);
+            array[this.count + 1] = (byte) (value >>> 16);
+            array[this.count + 2] = (byte) (value >>> 8);
+            array[this.count + 3] = (byte) value;
+            this.count += 4;
+        }
+
+        /**
+         * Gets how many bytes of the backing array are in use.
+         *
+         * @return bytes in use
+         */
+        int size() {
+            return this.count;
+        }
+
+        /**
+         * Copies out the bytes in use, for callers that need to keep them.
+         *
+         * @return copy of the bytes in use
+         */
+        byte[] toByteArray() {
+            return Arrays.copyOf(this.buf, this.count);
+        }
+
+        /**
+         * Empties the buffer, keeping its backing array.
+         */
+        void reset() {
+            this.count = 0;
+        }
+
+        /**
+         * Gets the backing array, valid up to {@link #size()} until the buffer is written to again or closed.
+         *
+         * @return backing array
+         */
+        byte[] array() {
+            return this.buf;
+        }
+
+        /**
+         * Makes sure the backing array can hold at least the given number of bytes, keeping what was written.
+         *
+         * @param capacity bytes needed
+         * @return backing array
+         */
+        byte[] reserve(int capacity) {
+            if (this.buf.length < capacity) {
+                this.buf = Arrays.copyOf(this.buf, Math.max(capacity, this.buf.length * 2));
+            }
+            return this.buf;
+        }
+
+        /**
+         * Sets how many bytes of the backing array are in use, after filling it directly.
+         *
+         * @param size bytes in use
+         */
+        void setSize(int size) {
+            this.count = size;
+        }
+
+        /**
+         * Returns this buffer to the pool. It must not be used afterwards.
+         */
+        @Override
+        public void close() {
+            if (this.pooled) {
+                return;
+            }
+            this.pooled = true;
+            if (this.buf.length <= MAX_RETAINED_BYTES) {
+                this.reset();
+                POOL.offer(this);
+            }
+        }
+    }
+}
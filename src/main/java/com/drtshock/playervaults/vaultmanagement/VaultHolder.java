@@ -27,7 +27,10 @@ import org.bukkit.inventory.InventoryHolder;
 public class VaultHolder implements InventoryHolder {
 
     private Inventory inventory;
+    private final String holderKey;
     private final int vaultNumber;
+    private volatile long version = -1;
+    private volatile String loadedData;
 
     /**
      * Creates a new vault holder
@@ -35,9 +38,29 @@ public class VaultHolder implements InventoryHolder {
      * @param vaultNumber the vault number this holder is using
      */
     public VaultHolder(int vaultNumber) {
+        this(null, vaultNumber);
+    }
+
+    /**
+     * Creates a new vault holder
+     *
+     * @param holderKey UUID (string) or legacy key of the vault's owner
+     * @param vaultNumber the vault number this holder is using
+     */
+    public VaultHolder(String holderKey, int vaultNumber) {
+        this.holderKey = holderKey;
         this.vaultNumber = vaultNumber;
     }
 
+    /**
+     * Gets the key of the vault's owner, if known
+     *
+     * @return UUID (string) or legacy key, may be null
+     */
+    public String getHolderKey() {
+        return holderKey;
+    }
+
     /**
      * Gets the vault number this holder is currently using
      *
@@ -47,6 +70,35 @@ public class VaultHolder implements InventoryHolder {
         return vaultNumber;
     }
 
+    /**
+     * Gets the stored version of the vault when it was loaded, or last saved from this holder
+     *
+     * @return the version, or -1 if unknown
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the serialized contents the vault had at {@link #getVersion()}, used to merge conflicting saves
+     *
+     * @return serialized contents, may be null if the vault was empty
+     */
+    public String getLoadedData() {
+        return loadedData;
+    }
+
+    /**
+     * Sets what was loaded into, or last saved from, this holder's inventory
+     *
+     * @param version stored version
+     * @param data serialized contents, may be null
+     */
+    public void setLoaded(long version, String data) {
+        this.loadedData = data;
+        this.version = version;
+    }
+
     @Override
     public Inventory getInventory() {
         return inventory;
@@ -18,10 +18,18 @@
 
 package com.drtshock.playervaults.vaultmanagement;
 
+import com.drtshock.playervaults.Conversion;
 import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.config.file.Config;
+import com.drtshock.playervaults.stats.AccessTrace;
+import com.drtshock.playervaults.stats.VaultEvents;
+import com.drtshock.playervaults.stats.VaultStats;
+import com.drtshock.playervaults.tasks.JobScheduler;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
@@ -32,12 +40,18 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import static com.drtshock.playervaults.vaultmanagement.VaultOperations.VaultGate;
@@ -45,16 +59,57 @@ import static com.drtshock.playervaults.vaultmanagement.VaultOperations.VaultGat
 public class VaultManager {
 
     private static final String VAULTKEY = "vault%d";
+    private static final String SUMMARYKEY = "summary.vault%d";
+    private static final String VERSIONKEY = "version.vault%d";
     private static VaultManager instance;
-    private final File directory = PlayerVaults.getInstance().getVaultData();
+    private final File directory;
     private final Map<String, YamlConfiguration> cachedVaultFiles = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, VaultSummary>> summaries = new ConcurrentHashMap<>();
+    // Rendered text of cached holders' files, so a save only dumps what changed
+    private final Map<String, HolderDocument> documents = new ConcurrentHashMap<>();
+    // Saves queued or in progress that weren't made by a background job
+    private final AtomicInteger liveWrites = new AtomicInteger();
+    private final HolderMailbox mailbox = new HolderMailbox();
+    // Files of holders no longer in use, kept off the heap until they are needed again
+    private final PayloadCache payloadCache;
+    // Serialized contents of saves not yet written, read in place of the file's so a reopened vault is never stale
+    private final Map<VaultGate.VaultKey, Pending> pendingSaves = new ConcurrentHashMap<>();
     private final PlayerVaults plugin;
+    // False for a sandbox, which leaves the item index, backups, access traces and the migration alone
+    private final boolean live;
+
+    private record Pending(String data, long version) {
+    }
 
     public VaultManager(PlayerVaults plugin) {
         this.plugin = plugin;
+        this.directory = plugin.getVaultData();
+        this.live = true;
+        Config.Storage.PayloadCache cacheConfig = plugin.getConf().getStorage().getPayloadCache();
+        this.payloadCache = new PayloadCache(cacheConfig.isEnabled() ? cacheConfig.getMegabytes() * 1024L * 1024L : 0, cacheConfig.isCompress());
         instance = this;
     }
 
+    private VaultManager(PlayerVaults plugin, File directory) {
+        this.plugin = plugin;
+        this.directory = directory;
+        this.live = false;
+        this.payloadCache = new PayloadCache(0, false);
+    }
+
+    /**
+     * Creates a manager storing holder files in another folder, for load testing with the same code paths as live
+     * storage. It isn't made the instance, keeps no payload cache, and its saves don't update the item index, make
+     * backups or show up in access traces.
+     *
+     * @param plugin plugin
+     * @param directory folder of holder files
+     * @return sandboxed manager
+     */
+    public static VaultManager sandbox(PlayerVaults plugin, File directory) {
+        return new VaultManager(plugin, directory);
+    }
+
     /**
      * Get the instance of this class.
      *
@@ -94,21 +149,428 @@ public class VaultManager {
     }
 
     /**
-     * Saves the inventory to the specified player and vault number.
+     * Saves the inventory to the specified player and vault number. The contents are serialized on the calling thread
+     * and written in the background, after any other queued operations for the holder.
      *
      * @param inventory The inventory to be saved.
      * @param target The player of whose file to save to.
      * @param number The vault number.
      */
     public void saveVault(Inventory inventory, String target, int number) {
+        this.saveVault(inventory, target, number, null);
+    }
+
+    /**
+     * Saves the inventory to the specified player and vault number, checking that nothing else has saved the vault
+     * since it was loaded. If something has, the configured conflict policy decides what is written.
+     *
+     * @param inventory The inventory to be saved.
+     * @param target The player of whose file to save to.
+     * @param number The vault number.
+     * @param loadedFrom The holder the vault was opened with, updated once written, or null to save unconditionally.
+     */
+    public void saveVault(Inventory inventory, String target, int number, VaultHolder loadedFrom) {
+        final String holderKey = normalizeHolderKey(target);
+        VaultOperations.getMaxVaultSize(holderKey);
+        ItemStack[] contents = inventory.getContents();
+        String serialized = CardboardBoxSerialization.toStorage(contents, holderKey);
+        VaultGate.VaultKey key = new VaultGate.VaultKey(holderKey, number);
+        Pending pending = new Pending(serialized, loadedFrom == null || loadedFrom.getVersion() < 0 ? -1 : loadedFrom.getVersion() + 1);
+        this.pendingSaves.put(key, pending);
+        this.queueWrite(holderKey, Map.of(number, contents), Map.of(number, serialized), loadedFrom, () -> this.pendingSaves.remove(key, pending)).whenComplete((result, error) -> {
+            if (error != null) {
+                this.plugin.getLogger().log(Level.SEVERE, "Failed to save vault " + number + " for " + holderKey, error);
+            }
+        });
+    }
+
+    /**
+     * Saves several vaults belonging to one holder with a single write of their file, waiting for it to be written.
+     *
+     * @param target The player of whose file to save to.
+     * @param vaults The contents to save, keyed by vault number.
+     */
+    public void saveVaults(String target, Map<Integer, ItemStack[]> vaults) {
+        final String holderKey = resolveFileKey(target);
+        Map<Integer, String> serialized = new HashMap<>();
+        vaults.forEach((number, contents) -> serialized.put(number, CardboardBoxSerialization.toStorage(contents, holderKey)));
+        HolderMailbox.join(this.queueWrite(holderKey, vaults, serialized, null, null));
+    }
+
+    /**
+     * Saves already serialized vaults belonging to one holder with a single write of their file, waiting for it to be
+     * written. The contents are decoded to keep summaries and the item index up to date, so this should only be run
+     * asynchronously.
+     *
+     * @param target The player of whose file to save to.
+     * @param vaults Serialized contents, as returned by {@link #getRawVaults(String)}, keyed by vault number.
+     */
+    public void saveRawVaults(String target, Map<Integer, String> vaults) {
         final String holderKey = normalizeHolderKey(target);
-        VaultGate.withLock(new VaultGate.VaultKey(holderKey, number), () -> {
-            YamlConfiguration yaml = getPlayerVaultFile(holderKey, true);
-            VaultOperations.getMaxVaultSize(holderKey);
-            String serialized = CardboardBoxSerialization.toStorage(inventory, holderKey);
-            yaml.set(String.format(VAULTKEY, number), serialized);
-            saveFileSync(holderKey, yaml);
+        Map<Integer, ItemStack[]> contents = new HashMap<>();
+        vaults.forEach((number, data) -> {
+            ItemStack[] decoded = CardboardBoxSerialization.fromStorage(data, holderKey);
+            contents.put(number, decoded == null ? new ItemStack[0] : decoded);
         });
+        HolderMailbox.join(this.queueWrite(holderKey, contents, vaults, null, null));
+    }
+
+    /**
+     * Waits for every queued storage operation to finish, for use when the plugin is disabled.
+     *
+     * @param timeoutSeconds longest time to wait
+     * @return true if everything was written in time
+     */
+    public boolean awaitWrites(int timeoutSeconds) {
+        return this.mailbox.await(Math.max(1, timeoutSeconds), TimeUnit.SECONDS);
+    }
+
+    // After runs in the mailbox too, before the holder's next operation starts
+    private CompletableFuture<Void> queueWrite(String holderKey, Map<Integer, ItemStack[]> contents, Map<Integer, String> serialized, VaultHolder loadedFrom, Runnable after) {
+        boolean live = JobScheduler.current() == null;
+        if (live) {
+            this.liveWrites.incrementAndGet();
+        }
+        CompletableFuture<Void> write = this.mailbox.submit(holderKey, () -> {
+            try {
+                this.writeVaults(holderKey, contents, serialized, loadedFrom);
+            } finally {
+                if (after != null) {
+                    after.run();
+                }
+            }
+            return null;
+        });
+        if (live) {
+            write.whenComplete((result, error) -> this.liveWrites.decrementAndGet());
+        }
+        return write;
+    }
+
+    // Only run from the holder's mailbox, which keeps writes to one file in order without locking. A save made from a
+    // loaded vault only goes through as is if the stored version is still the one it was loaded at. The cached file is
+    // read by other threads without locking, so changes go into a copy that replaces it once complete.
+    private void writeVaults(String holderKey, Map<Integer, ItemStack[]> toWrite, Map<Integer, String> toWriteSerialized, VaultHolder loadedFrom) {
+        Map<Integer, ItemStack[]> contents = new HashMap<>(toWrite);
+        Map<Integer, String> serialized = new HashMap<>(toWriteSerialized);
+        List<Integer> numbers = new ArrayList<>(serialized.keySet());
+        Collections.sort(numbers);
+        Map<Integer, VaultSummary> known = this.getCachedSummaries(holderKey);
+        Map<Integer, VaultSummary> summaries = new HashMap<>();
+        VaultEvents.Save event = new VaultEvents.Save();
+        event.begin();
+        YamlConfiguration yaml = copyOf(getPlayerVaultFile(holderKey, true));
+        for (int number : new ArrayList<>(numbers)) {
+            long stored = yaml.getLong(String.format(VERSIONKEY, number), 0);
+            if (loadedFrom != null && loadedFrom.getVersion() >= 0 && loadedFrom.getVersion() != stored) {
+                ItemStack[] resolved = this.resolveConflict(holderKey, number, loadedFrom, yaml.getString(String.format(VAULTKEY, number)), contents.get(number));
+                if (resolved == null) {
+                    loadedFrom.setLoaded(stored, yaml.getString(String.format(VAULTKEY, number)));
+                    contents.remove(number);
+                    serialized.remove(number);
+                    numbers.remove((Integer) number);
+                    continue;
+                }
+                contents.put(number, resolved);
+                serialized.put(number, CardboardBoxSerialization.toStorage(resolved, holderKey));
+            }
+            VaultSummary previous = known != null ? known.get(number) : VaultSummary.decode(yaml.getString(String.format(SUMMARYKEY, number)));
+            VaultSummary summary = VaultSummary.of(contents.get(number), serialized.get(number), previous == null ? 0 : previous.lastOpened());
+            summaries.put(number, summary);
+            yaml.set(String.format(VAULTKEY, number), serialized.get(number));
+            yaml.set(String.format(SUMMARYKEY, number), summary.encode());
+            yaml.set(String.format(VERSIONKEY, number), stored + 1);
+            if (loadedFrom != null) {
+                loadedFrom.setLoaded(stored + 1, serialized.get(number));
+            }
+        }
+        if (numbers.isEmpty()) {
+            return;
+        }
+        saveFileSync(holderKey, yaml);
+        if (this.live && AccessTrace.isRecording()) {
+            serialized.forEach((number, data) -> AccessTrace.record(AccessTrace.Op.SAVE, holderKey, number, data == null ? 0 : data.length()));
+        }
+        if (event.shouldCommit()) {
+            event.holder = holderKey;
+            event.vault = numbers.size() == 1 ? numbers.get(0) : 0;
+            event.vaults = numbers.size();
+            event.bytes = serialized.values().stream().mapToLong(data -> data == null ? 0 : data.length()).sum();
+            event.commit();
+        }
+        if (known != null) {
+            known.putAll(summaries);
+        }
+        if (this.live) {
+            contents.forEach((number, items) -> this.plugin.getItemIndex().update(holderKey, number, items));
+        }
+    }
+
+    // Only the sections are new, values are immutable strings and numbers and are shared with the original, so this
+    // costs a reference per entry rather than a rebuild of the tree
+    static YamlConfiguration copyOf(YamlConfiguration yaml) {
+        YamlConfiguration copy = new YamlConfiguration();
+        copyInto(yaml, copy);
+        return copy;
+    }
+
+    private static void copyInto(ConfigurationSection from, ConfigurationSection to) {
+        for (Map.Entry<String, Object> value : from.getValues(false).entrySet()) {
+            if (value.getValue() instanceof ConfigurationSection section) {
+                copyInto(section, to.createSection(value.getKey()));
+            } else {
+                to.set(value.getKey(), value.getValue());
+            }
+        }
+    }
+
+    /**
+     * Gets how many saves made for players, rather than by background jobs, are queued or being written.
+     *
+     * @return saves waiting or in progress
+     */
+    public int getLiveWrites() {
+        return this.liveWrites.get();
+    }
+
+    /**
+     * Gets the serialized contents of all of a holder's vaults without caching their file.
+     *
+     * @param holder holder
+     * @return serialized contents keyed by vault number, empty if the holder has no file
+     */
+    public Map<Integer, String> getRawVaults(String holder) {
+        String holderKey = resolveFileKey(holder);
+        YamlConfiguration yaml = this.cachedVaultFiles.get(holderKey);
+        if (yaml == null) {
+            yaml = this.payloadCache.peek(holderKey, new File(this.directory, holderKey + ".yml"));
+        }
+        if (yaml == null) {
+            yaml = this.loadPlayerVaultFile(holderKey, false);
+        }
+        Map<Integer, String> vaults = new HashMap<>();
+        if (yaml != null) {
+            for (String key : yaml.getKeys(false)) {
+                if (!key.startsWith("vault")) {
+                    continue;
+                }
+                try {
+                    int number = Integer.parseInt(key.substring(5));
+                    String data = yaml.getString(key);
+                    if (data != null) {
+                        vaults.put(number, data);
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        this.pendingSaves.forEach((key, pending) -> {
+            if (key.ownerKey().equals(holderKey)) {
+                vaults.put(key.number(), pending.data());
+            }
+        });
+        return vaults;
+    }
+
+    // A save still waiting to be written is newer than anything in the file
+    private String readVault(String holderKey, YamlConfiguration yaml, int number) {
+        Pending pending = this.pendingSaves.get(new VaultGate.VaultKey(holderKey, number));
+        return pending != null ? pending.data() : yaml.getString(String.format(VAULTKEY, number));
+    }
+
+    // Version the vault will have once pending saves are written, -1 if one of them is unconditional
+    private long readVersion(String holderKey, YamlConfiguration yaml, int number) {
+        Pending pending = this.pendingSaves.get(new VaultGate.VaultKey(holderKey, number));
+        return pending != null ? pending.version() : yaml.getLong(String.format(VERSIONKEY, number), 0);
+    }
+
+    /**
+     * Decides what to write when a vault is saved over a newer version than the one it was loaded at, keeping
+     * whatever would be lost in the conflicts folder.
+     *
+     * @return contents to write, or null to keep the stored version
+     */
+    private ItemStack[] resolveConflict(String holderKey, int number, VaultHolder loadedFrom, String theirs, ItemStack[] mine) {
+        VaultStats.increment(VaultStats.Counter.SAVE_CONFLICT);
+        String policy = this.plugin.getConf().getStorage().getConflictPolicy();
+        switch (policy.toLowerCase(Locale.ROOT)) {
+            case "overwrite" -> {
+                this.plugin.getLogger().warning("Vault " + number + " for " + holderKey + " changed while open, overwriting it");
+                this.writeConflict(holderKey, number, theirs == null ? null : CardboardBoxSerialization.fromStorage(theirs, holderKey), "overwritten");
+                return mine;
+            }
+            case "keep" -> {
+                this.plugin.getLogger().warning("Vault " + number + " for " + holderKey + " changed while open, keeping the newer version");
+                this.writeConflict(holderKey, number, mine, "discarded");
+                return null;
+            }
+            default -> {
+                if (!policy.equalsIgnoreCase("merge")) {
+                    this.plugin.getLogger().warning("Unknown conflict policy '" + policy + "', merging");
+                }
+                ItemStack[] base = CardboardBoxSerialization.fromStorage(loadedFrom.getLoadedData(), holderKey);
+                ItemStack[] stored = theirs == null ? new ItemStack[0] : CardboardBoxSerialization.fromStorage(theirs, holderKey);
+                if (base == null || stored == null) {
+                    this.plugin.getLogger().warning("Vault " + number + " for " + holderKey + " changed while open and could not be merged, overwriting it");
+                    this.writeConflict(holderKey, number, stored, "overwritten");
+                    return mine;
+                }
+                List<ItemStack> leftovers = new ArrayList<>();
+                ItemStack[] merged = VaultMerge.merge(base, stored, mine, leftovers);
+                this.plugin.getLogger().warning("Vault " + number + " for " + holderKey + " changed while open, merged both sets of changes" + (leftovers.isEmpty() ? "" : " with " + leftovers.size() + " stacks left over"));
+                if (!leftovers.isEmpty()) {
+                    this.writeConflict(holderKey, number, leftovers.toArray(new ItemStack[0]), "leftover");
+                }
+                return merged;
+            }
+        }
+    }
+
+    private void writeConflict(String holderKey, int number, ItemStack[] items, String reason) {
+        if (items == null) {
+            return;
+        }
+        File folder = new File(this.plugin.getDataFolder(), "conflicts");
+        File file = new File(folder, holderKey + ".vault" + number + "." + System.currentTimeMillis() + ".yml");
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("holder", holderKey);
+        yaml.set("vault", number);
+        yaml.set("reason", reason);
+        yaml.set("contents", CardboardBoxSerialization.toStorage(items, holderKey));
+        try {
+            folder.mkdirs();
+            yaml.save(file);
+            this.plugin.getLogger().warning("Wrote " + reason + " items to " + file.getName());
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.SEVERE, "Failed to write " + reason + " items for vault " + number + " of " + holderKey, e);
+        }
+    }
+
+    /**
+     * Gets the summaries of all of a holder's vaults. The holder's file is read if they aren't cached yet, and vaults
+     * saved before summaries existed are decoded once, so this should be run asynchronously unless
+     * {@link #getCachedSummaries(String)} has them.
+     *
+     * @param holder holder
+     * @return live map of summaries keyed by vault number, empty if the holder has no vaults
+     */
+    public Map<Integer, VaultSummary> getSummaries(String holder) {
+        String holderKey = resolveFileKey(holder);
+        Map<Integer, VaultSummary> cached = this.summaries.get(holderKey);
+        if (cached != null) {
+            return cached;
+        }
+        // Loaded and published on the holder's mailbox, so no save can land between reading the file and publishing
+        return HolderMailbox.join(this.mailbox.submit(holderKey, () -> {
+            Map<Integer, VaultSummary> current = this.summaries.get(holderKey);
+            if (current != null) {
+                return current;
+            }
+            Map<Integer, VaultSummary> loaded = this.loadSummaries(holderKey);
+            this.summaries.put(holderKey, loaded);
+            return loaded;
+        }));
+    }
+
+    /**
+     * Gets the summaries of a holder's vaults only if they are already in memory.
+     *
+     * @param holder holder
+     * @return live map of summaries keyed by vault number, or null if not cached
+     */
+    public Map<Integer, VaultSummary> getCachedSummaries(String holder) {
+        return this.summaries.get(resolveFileKey(holder));
+    }
+
+    /**
+     * Records that a vault was opened. Stored with the vault's next save. Only noted if the holder's summaries are
+     * already in memory, as opening a vault should never load them.
+     *
+     * @param holder holder
+     * @param number vault number
+     */
+    public void markOpened(String holder, int number) {
+        Map<Integer, VaultSummary> cached = this.getCachedSummaries(normalizeHolderKey(holder));
+        if (cached != null) {
+            long now = System.currentTimeMillis();
+            cached.computeIfPresent(number, (n, summary) -> summary.withLastOpened(now));
+        }
+    }
+
+    private Map<Integer, VaultSummary> loadSummaries(String holderKey) {
+        Map<Integer, VaultSummary> loaded = new ConcurrentHashMap<>();
+        YamlConfiguration yaml = this.cachedVaultFiles.get(holderKey);
+        if (yaml == null) {
+            yaml = this.payloadCache.peek(holderKey, new File(this.directory, holderKey + ".yml"));
+        }
+        if (yaml == null) {
+            yaml = this.loadPlayerVaultFile(holderKey, false);
+        }
+        if (yaml == null) {
+            return loaded;
+        }
+        long modified = new File(this.directory, holderKey + ".yml").lastModified();
+        Map<Integer, VaultSummary> backfilled = new HashMap<>();
+        for (String key : yaml.getKeys(false)) {
+            if (!key.startsWith("vault")) {
+                continue;
+            }
+            int number;
+            try {
+                number = Integer.parseInt(key.substring(5));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            VaultSummary summary = VaultSummary.decode(yaml.getString(String.format(SUMMARYKEY, number)));
+            if (summary == null) {
+                // Saved before summaries existed, work it out once and keep it for the next save
+                String data = yaml.getString(key);
+                ItemStack[] contents = CardboardBoxSerialization.fromStorage(data, holderKey);
+                VaultSummary computed = VaultSummary.of(contents == null ? new ItemStack[0] : contents, data, 0);
+                summary = new VaultSummary(computed.size(), computed.slotsUsed(), computed.items(), computed.bytes(), 0, modified, computed.preview());
+                backfilled.put(number, summary);
+            }
+            loaded.put(number, summary);
+        }
+        if (!backfilled.isEmpty()) {
+            this.backfillSummaries(holderKey, backfilled);
+        }
+        return loaded;
+    }
+
+    // Kept in the cached file for its next save. Only run from the holder's mailbox, into a copy, like any other change
+    // to it.
+    private void backfillSummaries(String holderKey, Map<Integer, VaultSummary> backfilled) {
+        YamlConfiguration current = this.cachedVaultFiles.get(holderKey);
+        if (current == null) {
+            return;
+        }
+        YamlConfiguration copy = copyOf(current);
+        backfilled.forEach((number, summary) -> {
+            if (copy.contains(String.format(VAULTKEY, number)) && !copy.contains(String.format(SUMMARYKEY, number))) {
+                copy.set(String.format(SUMMARYKEY, number), summary.encode());
+            }
+        });
+        this.cachedVaultFiles.replace(holderKey, current, copy);
+    }
+
+    /**
+     * Gets the keys of every holder with a vault file.
+     *
+     * @return holder keys
+     */
+    public Set<String> getHolderKeys() {
+        Set<String> holders = new HashSet<>();
+        File[] files = this.directory.listFiles();
+        for (File file : files != null ? files : new File[0]) {
+            String name = file.getName();
+            if (file.isFile() && name.endsWith(".yml")) {
+                holders.add(name.substring(0, name.length() - 4));
+            }
+        }
+        // Not written to this folder until their turn comes, loading them migrates them first
+        holders.addAll(Conversion.getPendingHolders());
+        return holders;
     }
 
     /**
@@ -123,6 +585,7 @@ public class VaultManager {
         }
 
         PlayerVaults.debug("Loading self vault for " + player.getName() + " (" + player.getUniqueId() + ')');
+        this.markOpened(player.getUniqueId().toString(), number);
 
         String title = PlayerVaults.getInstance().getVaultTitle(String.valueOf(number));
         VaultViewInfo info = new VaultViewInfo(player.getUniqueId().toString(), number);
@@ -132,9 +595,11 @@ public class VaultManager {
         }
 
         YamlConfiguration playerFile = getPlayerVaultFile(player.getUniqueId().toString(), true);
-        VaultHolder vaultHolder = new VaultHolder(number);
-        if (playerFile.getString(String.format(VAULTKEY, number)) == null) {
+        VaultHolder vaultHolder = new VaultHolder(player.getUniqueId().toString(), number);
+        if (this.readVault(player.getUniqueId().toString(), playerFile, number) == null) {
             PlayerVaults.debug("No vault matching number");
+            AccessTrace.record(AccessTrace.Op.OPEN, player.getUniqueId().toString(), number, 0);
+            vaultHolder.setLoaded(this.readVersion(player.getUniqueId().toString(), playerFile, number), null);
             Inventory inv = Bukkit.createInventory(vaultHolder, size, title);
             vaultHolder.setInventory(inv);
             return inv;
@@ -156,11 +621,12 @@ public class VaultManager {
 
         final String holderKey = normalizeHolderKey(name);
         PlayerVaults.debug("Loading other vault for " + holderKey);
+        this.markOpened(holderKey, number);
 
         String title = PlayerVaults.getInstance().getVaultTitle(String.valueOf(number));
         VaultViewInfo info = new VaultViewInfo(holderKey, number);
         Inventory inv;
-        VaultHolder vaultHolder = new VaultHolder(number);
+        VaultHolder vaultHolder = new VaultHolder(holderKey, number);
         if (PlayerVaults.getInstance().getOpenInventories().containsKey(info.toString())) {
             PlayerVaults.debug("Already open");
             inv = PlayerVaults.getInstance().getOpenInventories().get(info.toString());
@@ -187,8 +653,15 @@ public class VaultManager {
      */
     private Inventory getInventory(InventoryHolder owner, String ownerName, YamlConfiguration playerFile, int size, int number, String title) {
         Inventory inventory = Bukkit.createInventory(owner, size, title);
+        if (owner instanceof VaultHolder vaultHolder) {
+            vaultHolder.setInventory(inventory);
+        }
 
-        String data = playerFile.getString(String.format(VAULTKEY, number));
+        String data = this.readVault(ownerName, playerFile, number);
+        if (owner instanceof VaultHolder vaultHolder) {
+            vaultHolder.setLoaded(this.readVersion(ownerName, playerFile, number), data);
+        }
+        AccessTrace.record(AccessTrace.Op.OPEN, ownerName, number, data == null ? 0 : data.length());
         ItemStack[] deserialized = CardboardBoxSerialization.fromStorage(data, ownerName);
         if (deserialized == null) {
             PlayerVaults.debug("Loaded vault for " + ownerName + " as null");
@@ -221,9 +694,9 @@ public class VaultManager {
      * @return The inventory of the specified holder and vault number. Can be null.
      */
     public Inventory getVault(String holder, int number) {
-        String holderKey = normalizeHolderKey(holder);
+        String holderKey = resolveFileKey(holder);
         YamlConfiguration playerFile = getPlayerVaultFile(holderKey, true);
-        String serialized = playerFile.getString(String.format(VAULTKEY, number));
+        String serialized = this.readVault(holderKey, playerFile, number);
         ItemStack[] contents = CardboardBoxSerialization.fromStorage(serialized, holderKey);
         int size = Math.max(9, ((contents.length + 8) / 9) * 9);
         Inventory inventory = Bukkit.createInventory(null, size, holderKey + " vault " + number);
@@ -241,6 +714,11 @@ public class VaultManager {
      */
     public boolean vaultExists(String holder, int number) {
         String holderKey = normalizeHolderKey(holder);
+        Map<Integer, VaultSummary> cached = this.getCachedSummaries(holderKey);
+        if (cached != null) {
+            return cached.containsKey(number);
+        }
+        Conversion.awaitHolder(holderKey);
         File file = new File(directory, holderKey + ".yml");
         if (!file.exists()) {
             return false;
@@ -256,30 +734,28 @@ public class VaultManager {
      * @return a set of Integers, which are player's vaults' numbers (fuck grammar).
      */
     public Set<Integer> getVaultNumbers(String holder) {
-        Set<Integer> vaults = new HashSet<>();
-        String holderKey = normalizeHolderKey(holder);
-        YamlConfiguration file = getPlayerVaultFile(holderKey, true);
-        if (file == null) {
-            return vaults;
-        }
-
-        for (String s : file.getKeys(false)) {
-            try {
-                // vault%
-                int number = Integer.parseInt(s.substring(4));
-                vaults.add(number);
-            } catch (NumberFormatException e) {
-                // silent
-            }
-        }
-
-        return vaults;
+        return new HashSet<>(this.getSummaries(normalizeHolderKey(holder)).keySet());
     }
 
-    public void deleteAllVaults(String holder) {
+    /**
+     * Deletes all of a holder's vaults, after any saves already queued for them, and closes them for their viewers.
+     *
+     * @param holder holder
+     * @return completes once the holder's file is deleted
+     */
+    public CompletableFuture<Void> deleteAllVaults(String holder) {
+        long start = VaultStats.start();
         String holderKey = normalizeHolderKey(holder);
-        removeCachedPlayerVaultFile(holderKey);
-        deletePlayerVaultFile(holderKey);
+        CompletableFuture<Void> deleted = this.mailbox.submit(holderKey, () -> {
+            removeCachedPlayerVaultFile(holderKey);
+            deletePlayerVaultFile(holderKey);
+            this.plugin.getItemIndex().removeHolder(holderKey);
+            return null;
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                this.plugin.getLogger().log(Level.SEVERE, "Failed to delete vaults for " + holderKey, error);
+            }
+        });
 
         List<String> toRemove = new ArrayList<>();
         PlayerVaults.getInstance().getInVault().forEach((viewerId, info) -> {
@@ -299,6 +775,9 @@ public class VaultManager {
             }
         });
         toRemove.forEach(id -> PlayerVaults.getInstance().getInVault().remove(id));
+        VaultStats.record(VaultStats.Timer.DELETE, start);
+        AccessTrace.record(AccessTrace.Op.DELETE, holderKey, 0, 0);
+        return deleted;
     }
 
     /**
@@ -310,81 +789,132 @@ public class VaultManager {
      */
     public void deleteVault(CommandSender sender, final String holder, final int number) {
         final String holderKey = normalizeHolderKey(holder);
-        final VaultGate.VaultKey gateKey = new VaultGate.VaultKey(holderKey, number);
+        this.mailbox.submit(holderKey, () -> {
+            long start = VaultStats.start();
+            Conversion.awaitHolder(holderKey);
+            File file = new File(directory, holderKey + ".yml");
+            if (!file.exists()) {
+                return null;
+            }
 
-        PlayerVaults.scheduler().runAsync(task ->
-            VaultGate.withLock(gateKey, () -> {
-                File file = new File(directory, holderKey + ".yml");
-                if (!file.exists()) {
-                    return;
-                }
+            // Through the same copy and write as a save, so it's backed up, counted and seen by the payload cache
+            YamlConfiguration original = getPlayerVaultFile(holderKey, true);
+            YamlConfiguration playerFile = copyOf(original);
+            playerFile.set(String.format(VAULTKEY, number), null);
+            playerFile.set(String.format(SUMMARYKEY, number), null);
+            // Kept so a save from the vault while it was open is seen as a conflict rather than undoing the delete
+            playerFile.set(String.format(VERSIONKEY, number), playerFile.getLong(String.format(VERSIONKEY, number), 0) + 1);
+            if (!saveFileSync(holderKey, playerFile)) {
+                cachedVaultFiles.replace(holderKey, playerFile, original);
+                throw new IllegalStateException("Vault file of " + holderKey + " could not be written");
+            }
+            Map<Integer, VaultSummary> cached = getCachedSummaries(holderKey);
+            if (cached != null) {
+                cached.remove(number);
+            }
+            plugin.getItemIndex().update(holderKey, number, null);
 
-                YamlConfiguration playerFile = YamlConfiguration.loadConfiguration(file);
-                playerFile.set(String.format(VAULTKEY, number), null);
-                cachedVaultFiles.put(holderKey, playerFile);
-                try {
-                    playerFile.save(file);
-                } catch (IOException ignored) {
-                }
+            String key = new VaultViewInfo(holderKey, number).toString();
+            PlayerVaults.getInstance().getOpenInventories().remove(key);
 
-                String key = new VaultViewInfo(holderKey, number).toString();
-                PlayerVaults.getInstance().getOpenInventories().remove(key);
-
-                List<String> toRemove = new ArrayList<>();
-                PlayerVaults.getInstance().getInVault().forEach((viewerId, info) -> {
-                    if (holderKey.equals(info.getVaultName()) && info.getNumber() == number) {
-                        toRemove.add(viewerId);
-                        Player p = null;
-                        try {
-                            p = Bukkit.getPlayer(UUID.fromString(viewerId));
-                        } catch (Exception ignored) {
-                            // Ignored try actionable.
-                        }
-                        if (p != null) {
-                            Player finalP = p;
-                            PlayerVaults.scheduler().runAtEntity(finalP, t -> finalP.closeInventory());
-                        }
+            List<String> toRemove = new ArrayList<>();
+            PlayerVaults.getInstance().getInVault().forEach((viewerId, info) -> {
+                if (holderKey.equals(info.getVaultName()) && info.getNumber() == number) {
+                    toRemove.add(viewerId);
+                    Player p = null;
+                    try {
+                        p = Bukkit.getPlayer(UUID.fromString(viewerId));
+                    } catch (Exception ignored) {
+                        // Ignored try actionable.
                     }
-                });
-                toRemove.forEach(id -> PlayerVaults.getInstance().getInVault().remove(id));
-            })
-        );
-
-        OfflinePlayer target = null;
-        try {
-            target = Bukkit.getOfflinePlayer(UUID.fromString(holderKey));
-        } catch (Exception ignored) {
-            // Ignored try actionable.
-        }
-        if (target != null && target.getName() != null) {
-            if (sender.getName().equalsIgnoreCase(target.getName())) {
-                this.plugin.getTL().deleteVault().title().with("vault", String.valueOf(number)).send(sender);
-            } else {
-                this.plugin.getTL().deleteOtherVault().title().with("vault", String.valueOf(number)).with("player", target.getName()).send(sender);
+                    if (p != null) {
+                        Player finalP = p;
+                        PlayerVaults.scheduler().runAtEntity(finalP, t -> finalP.closeInventory());
+                    }
+                }
+            });
+            toRemove.forEach(id -> PlayerVaults.getInstance().getInVault().remove(id));
+            VaultStats.record(VaultStats.Timer.DELETE, start);
+            AccessTrace.record(AccessTrace.Op.DELETE, holderKey, number, 0);
+            return null;
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                this.plugin.getLogger().log(Level.SEVERE, "Failed to delete vault " + number + " for " + holderKey, error);
+                sender.sendMessage("Failed to delete vault " + number + ", see the console for details.");
+                return;
             }
-        } else {
-            if (sender.getName().equalsIgnoreCase(holder)) {
-                this.plugin.getTL().deleteVault().title().with("vault", String.valueOf(number)).send(sender);
+            OfflinePlayer target = null;
+            try {
+                target = Bukkit.getOfflinePlayer(UUID.fromString(holderKey));
+            } catch (Exception ignored) {
+                // Ignored try actionable.
+            }
+            if (target != null && target.getName() != null) {
+                if (sender.getName().equalsIgnoreCase(target.getName())) {
+                    this.plugin.getTL().deleteVault().title().with("vault", String.valueOf(number)).send(sender);
+                } else {
+                    this.plugin.getTL().deleteOtherVault().title().with("vault", String.valueOf(number)).with("player", target.getName()).send(sender);
+                }
             } else {
-                this.plugin.getTL().deleteOtherVault().title().with("vault", String.valueOf(number)).with("player", holder).send(sender);
+                if (sender.getName().equalsIgnoreCase(holder)) {
+                    this.plugin.getTL().deleteVault().title().with("vault", String.valueOf(number)).send(sender);
+                } else {
+                    this.plugin.getTL().deleteOtherVault().title().with("vault", String.valueOf(number)).with("player", holder).send(sender);
+                }
             }
-        }
+        });
 
         PlayerVaults.getInstance().getOpenInventories().remove(new VaultViewInfo(holderKey, number).toString());
     }
 
-    // Should only be run asynchronously
+    // Should only be run asynchronously. Queued behind the holder's saves, so it can't cache a file older than them.
     public void cachePlayerVaultFile(String holder) {
-        String holderKey = normalizeHolderKey(holder);
-        YamlConfiguration config = this.loadPlayerVaultFile(holderKey, false);
-        if (config != null) {
-            this.cachedVaultFiles.put(holderKey, config);
-        }
+        String holderKey = resolveFileKey(holder);
+        HolderMailbox.join(this.mailbox.submit(holderKey, () -> {
+            YamlConfiguration config = this.payloadCache.take(holderKey, new File(this.directory, holderKey + ".yml"));
+            if (config == null) {
+                config = this.loadPlayerVaultFile(holderKey, false);
+            }
+            if (config != null) {
+                this.cachedVaultFiles.put(holderKey, config);
+            }
+            return null;
+        }));
     }
 
     public void removeCachedPlayerVaultFile(String holder) {
-        String holderKey = normalizeHolderKey(holder);
+        String holderKey = resolveFileKey(holder);
         cachedVaultFiles.remove(holderKey);
+        this.summaries.remove(holderKey);
+        this.documents.remove(holderKey);
+        this.payloadCache.remove(holderKey);
+    }
+
+    /**
+     * Moves a holder's cached file off the heap, for when they are no longer in use but may well be again soon, like
+     * a player leaving. Runs after the holder's queued saves.
+     *
+     * @param holder holder
+     */
+    public void parkPlayerVaultFile(String holder) {
+        String holderKey = resolveFileKey(holder);
+        this.mailbox.submit(holderKey, () -> {
+            YamlConfiguration yaml = this.cachedVaultFiles.remove(holderKey);
+            this.summaries.remove(holderKey);
+            this.documents.remove(holderKey);
+            if (yaml != null) {
+                this.payloadCache.put(holderKey, yaml, new File(this.directory, holderKey + ".yml"));
+            }
+            return null;
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                this.plugin.getLogger().log(Level.SEVERE, "Failed to park vault file for " + holderKey, error);
+            }
+        });
+    }
+
+    public PayloadCache getPayloadCache() {
+        return this.payloadCache;
     }
 
     /**
@@ -395,7 +925,16 @@ public class VaultManager {
      */
     public YamlConfiguration getPlayerVaultFile(String holder, boolean createIfNotFound) {
         String holderKey = resolveFileKey(holder);
-        return cachedVaultFiles.computeIfAbsent(holderKey, key -> loadPlayerVaultFile(key, createIfNotFound));
+        YamlConfiguration cached = cachedVaultFiles.get(holderKey);
+        if (cached != null) {
+            VaultStats.increment(VaultStats.Counter.CACHE_HIT);
+            return cached;
+        }
+        VaultStats.increment(VaultStats.Counter.CACHE_MISS);
+        return cachedVaultFiles.computeIfAbsent(holderKey, key -> {
+            YamlConfiguration parked = this.payloadCache.take(key, new File(this.directory, key + ".yml"));
+            return parked != null ? parked : loadPlayerVaultFile(key, createIfNotFound);
+        });
     }
 
     public YamlConfiguration loadPlayerVaultFile(String holder) {
@@ -409,7 +948,10 @@ public class VaultManager {
      */
     public void deletePlayerVaultFile(String holder) {
         String holderKey = resolveFileKey(holder);
+        Conversion.awaitHolder(holderKey);
         File file = new File(this.directory, holderKey + ".yml");
+        this.payloadCache.remove(holderKey);
+        this.documents.remove(holderKey);
         if (file.exists()) {
             file.delete();
         }
@@ -420,6 +962,11 @@ public class VaultManager {
             this.directory.mkdir();
         }
 
+        // Legacy data for this holder may still be waiting to be migrated
+        if (this.live) {
+            Conversion.awaitHolder(uniqueId);
+        }
+
         File file = new File(this.directory, uniqueId + ".yml");
         if (!file.exists()) {
             if (createIfNotFound) {
@@ -433,30 +980,64 @@ public class VaultManager {
             }
         }
 
-        return YamlConfiguration.loadConfiguration(file);
+        long start = VaultStats.start();
+        VaultEvents.Load event = new VaultEvents.Load();
+        event.begin();
+        YamlConfiguration yaml = new YamlConfiguration();
+        try {
+            yaml.loadFromString(StorageBuffers.read(file.toPath()));
+        } catch (IOException | InvalidConfigurationException e) {
+            Bukkit.getLogger().log(Level.SEVERE, "Cannot load " + file, e);
+        }
+        VaultStats.record(VaultStats.Timer.LOAD, start);
+        VaultStats.add(VaultStats.Counter.BYTES_READ, file.length());
+        if (this.live) {
+            AccessTrace.record(AccessTrace.Op.LOAD, uniqueId, 0, file.length());
+        }
+        if (event.shouldCommit()) {
+            event.holder = uniqueId;
+            event.bytes = file.length();
+            event.commit();
+        }
+        return yaml;
     }
 
-    public void saveFileSync(final String holder, final YamlConfiguration yaml) {
+    /**
+     * Writes a holder's file and makes it the cached copy. Only run from the holder's mailbox.
+     *
+     * @param holder holder
+     * @param yaml complete file, not to be changed afterwards
+     * @return false if the file couldn't be written, which is already logged
+     */
+    public boolean saveFileSync(final String holder, final YamlConfiguration yaml) {
         String holderKey = resolveFileKey(holder);
-        if (cachedVaultFiles.containsKey(holderKey)) {
-            cachedVaultFiles.put(holderKey, yaml);
-        }
+        // Swapped in whole, never changed in place, as readers don't lock
+        boolean cached = cachedVaultFiles.replace(holderKey, yaml) != null;
+        this.payloadCache.remove(holderKey);
+        // Holders that aren't cached, like those written by background jobs, don't keep their text around either
+        HolderDocument document = cached ? this.documents.computeIfAbsent(holderKey, key -> new HolderDocument()) : new HolderDocument();
 
-        final boolean backups = PlayerVaults.getInstance().isBackupsEnabled();
+        final boolean backups = this.live && PlayerVaults.getInstance().isBackupsEnabled();
         final File backupsFolder = PlayerVaults.getInstance().getBackupsFolder();
         final File file = new File(directory, holderKey + ".yml");
         if (file.exists() && backups) {
             file.renameTo(new File(backupsFolder, holderKey + ".yml"));
         }
 
+        long start = VaultStats.start();
         try {
-            yaml.save(file);
+            // The file is still rewritten whole, one file per holder being the format, but only changed entries are dumped
+            long written = StorageBuffers.write(file.toPath(), document.render(yaml));
+            VaultStats.record(VaultStats.Timer.SAVE, start);
+            VaultStats.add(VaultStats.Counter.BYTES_WRITTEN, written);
         } catch (IOException e) {
             PlayerVaults.getInstance().addException(new IllegalStateException("Failed to save vault file for: " + holderKey, e));
             PlayerVaults.getInstance().getLogger().log(Level.SEVERE, "Failed to save vault file for: " + holderKey, e);
+            return false;
         }
 
         PlayerVaults.debug("Saved vault for " + holderKey);
+        return true;
     }
 
     private String resolveFileKey(String holder) {
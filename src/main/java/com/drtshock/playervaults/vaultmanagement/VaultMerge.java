@@ -0,0 +1,90 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Three-way merge of vault contents, for when two saves were made from the same loaded version of a vault.
+ * <p>
+ * Slots only one side changed take that side's item. Where both changed a slot differently the stored item stays and
+ * the other is moved to a free slot, or handed back as a leftover if the vault is full. Like saving without merging,
+ * this can't tell an item taken out of the vault from one moved within it.
+ */
+final class VaultMerge {
+    private VaultMerge() {
+    }
+
+    /**
+     * Merges two sets of changes to a vault.
+     *
+     * @param base contents both sides started from
+     * @param theirs contents stored since
+     * @param mine contents being saved
+     * @param leftovers receives items that had no room
+     * @return merged contents, sized like the save
+     */
+    static ItemStack[] merge(ItemStack[] base, ItemStack[] theirs, ItemStack[] mine, List<ItemStack> leftovers) {
+        ItemStack[] merged = new ItemStack[mine.length];
+        List<ItemStack> homeless = new ArrayList<>();
+        for (int i = 0; i < Math.max(merged.length, theirs.length); i++) {
+            ItemStack b = slot(base, i);
+            ItemStack t = slot(theirs, i);
+            ItemStack m = slot(mine, i);
+            ItemStack chosen;
+            if (Objects.equals(m, b)) {
+                chosen = t;
+            } else if (Objects.equals(t, b) || Objects.equals(t, m)) {
+                chosen = m;
+            } else {
+                chosen = t;
+                if (m != null) {
+                    homeless.add(m);
+                }
+            }
+            if (i < merged.length) {
+                merged[i] = chosen;
+            } else if (chosen != null) {
+                homeless.add(chosen);
+            }
+        }
+        int free = 0;
+        for (ItemStack item : homeless) {
+            while (free < merged.length && merged[free] != null) {
+                free++;
+            }
+            if (free < merged.length) {
+                merged[free] = item;
+            } else {
+                leftovers.add(item);
+            }
+        }
+        return merged;
+    }
+
+    private static ItemStack slot(ItemStack[] contents, int i) {
+        ItemStack item = i < contents.length ? contents[i] : null;
+        return item == null || item.getType().isAir() || item.getAmount() <= 0 ? null : item;
+    }
+}
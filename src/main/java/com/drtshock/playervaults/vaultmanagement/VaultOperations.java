@@ -19,6 +19,8 @@
 package com.drtshock.playervaults.vaultmanagement;
 
 import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.stats.VaultEvents;
+import com.drtshock.playervaults.stats.VaultStats;
 import com.drtshock.playervaults.util.Permission;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
@@ -40,6 +42,15 @@ import java.util.function.Supplier;
 public class VaultOperations {
 
     private static final AtomicBoolean LOCKED = new AtomicBoolean(false);
+    // Holder key - number of maintenance writes in progress
+    private static final ConcurrentHashMap<String, Integer> MAINTENANCE = new ConcurrentHashMap<>();
+    private static final long MAINTENANCE_WAIT = 10_000;
+
+    // Why a player's own vault wasn't opened
+    private enum Refusal {
+        LOCKED,
+        FUNDS
+    }
 
     public static final class VaultGate {
 
@@ -47,7 +58,16 @@ public class VaultOperations {
 
         public static <T> T withLock(VaultKey key, Supplier<T> body) {
             ReentrantLock lock = LOCKS.computeIfAbsent(key, k -> new ReentrantLock());
+            long start = VaultStats.start();
+            VaultEvents.LockWait event = new VaultEvents.LockWait();
+            event.begin();
             lock.lock();
+            VaultStats.record(VaultStats.Timer.LOCK_WAIT, start);
+            if (event.shouldCommit()) {
+                event.holder = key.ownerKey();
+                event.vault = key.number();
+                event.commit();
+            }
             try {
                 return body.get();
             } finally {
@@ -105,6 +125,103 @@ public class VaultOperations {
         }
     }
 
+    /**
+     * Gets whether a holder's vaults are closed for maintenance, such as being written by a conversion.
+     *
+     * @param holderKey normalized holder key
+     * @return true if the holder's vaults can't be opened or deleted right now
+     */
+    public static boolean isUnderMaintenance(String holderKey) {
+        return MAINTENANCE.containsKey(holderKey);
+    }
+
+    /**
+     * Runs a bulk write to one holder's vaults while nobody can use them. Anyone viewing them is kicked out and, when
+     * not called from the main thread, their vaults are given time to save before the write starts.
+     * Everybody else's vaults stay usable throughout.
+     *
+     * @param holder holder whose vaults are written
+     * @param body the write
+     */
+    public static void withMaintenance(String holder, Runnable body) {
+        String holderKey = VaultManager.normalizeHolderKey(holder);
+        MAINTENANCE.merge(holderKey, 1, Integer::sum);
+        try {
+            if (closeViewers(holderKey) && !Bukkit.isPrimaryThread()) {
+                awaitSessions(holderKey);
+            }
+            body.run();
+        } finally {
+            MAINTENANCE.computeIfPresent(holderKey, (key, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * Runs a bulk write to one holder's vaults only if none of them are open, keeping them closed while it runs.
+     * Unlike {@link #withMaintenance(String, Runnable)} nobody is kicked out; the caller should retry later instead.
+     *
+     * @param holder holder whose vaults are written
+     * @param body the write
+     * @return false if a vault was open and the write was not run
+     */
+    public static boolean tryMaintenance(String holder, Runnable body) {
+        String holderKey = VaultManager.normalizeHolderKey(holder);
+        MAINTENANCE.merge(holderKey, 1, Integer::sum);
+        try {
+            if (hasSessions(holderKey)) {
+                return false;
+            }
+            body.run();
+            return true;
+        } finally {
+            MAINTENANCE.computeIfPresent(holderKey, (key, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private static boolean closeViewers(String holderKey) {
+        boolean found = false;
+        for (Map.Entry<String, VaultViewInfo> entry : PlayerVaults.getInstance().getInVault().entrySet()) {
+            if (!holderKey.equals(entry.getValue().getVaultName())) {
+                continue;
+            }
+            found = true;
+            Player player;
+            try {
+                player = Bukkit.getPlayer(UUID.fromString(entry.getKey()));
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (player != null) {
+                PlayerVaults.scheduler().runAtEntity(player, task -> player.closeInventory());
+                PlayerVaults.getInstance().getTL().locked().title().send(player);
+            }
+        }
+        return found;
+    }
+
+    // Closed vaults are saved by the close listener, which has to finish before the maintenance write
+    private static void awaitSessions(String holderKey) {
+        long deadline = System.currentTimeMillis() + MAINTENANCE_WAIT;
+        while (hasSessions(holderKey)) {
+            if (System.currentTimeMillis() > deadline) {
+                PlayerVaults.getInstance().getLogger().warning("Vaults of " + holderKey + " were still open after " + (MAINTENANCE_WAIT / 1000) + " seconds, writing anyway.");
+                return;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static boolean hasSessions(String holderKey) {
+        String prefix = holderKey + ' ';
+        return PlayerVaults.getInstance().getInVault().values().stream().anyMatch(info -> holderKey.equals(info.getVaultName()))
+                || PlayerVaults.getInstance().getOpenInventories().keySet().stream().anyMatch(key -> key.startsWith(prefix));
+    }
+
     /**
      * Check whether or not the player has permission to open the requested vault.
      *
@@ -194,21 +311,41 @@ public class VaultOperations {
             return false;
         }
 
-        if (!free && !EconomyOperations.payToOpen(player, number)) {
-            PlayerVaults.getInstance().getTL().insufficientFunds().title().send(player);
+        final String ownerKey = player.getUniqueId().toString();
+        // Checked before charging, so nobody pays for a vault they then can't open
+        if (isUnderMaintenance(ownerKey)) {
+            PlayerVaults.getInstance().getTL().locked().title().send(player);
             return false;
         }
-
-        final String ownerKey = player.getUniqueId().toString();
         final VaultViewInfo info = new VaultViewInfo(ownerKey, number);
         final VaultGate.VaultKey gateKey = new VaultGate.VaultKey(ownerKey, number);
 
-        Inventory inv = VaultGate.withLock(gateKey, () ->
-            PlayerVaults.getInstance().getOpenInventories().computeIfAbsent(info.toString(), key ->
+        long start = VaultStats.start();
+        Refusal[] refused = new Refusal[1];
+        Inventory inv = VaultGate.withLock(gateKey, () -> {
+            // Maintenance may have started while waiting for the lock, and the player must not be charged then
+            if (isUnderMaintenance(ownerKey)) {
+                refused[0] = Refusal.LOCKED;
+                return null;
+            }
+            if (!free && !EconomyOperations.payToOpen(player, number)) {
+                refused[0] = Refusal.FUNDS;
+                return null;
+            }
+            return PlayerVaults.getInstance().getOpenInventories().computeIfAbsent(info.toString(), key ->
                 VaultManager.getInstance().loadOwnVault(player, number, getMaxVaultSize(player))
-            )
-        );
+            );
+        });
+        VaultStats.record(VaultStats.Timer.OPEN, start);
 
+        if (refused[0] == Refusal.LOCKED) {
+            PlayerVaults.getInstance().getTL().locked().title().send(player);
+            return false;
+        }
+        if (refused[0] == Refusal.FUNDS) {
+            PlayerVaults.getInstance().getTL().insufficientFunds().title().send(player);
+            return false;
+        }
         if (inv == null) {
             PlayerVaults.debug(String.format("Failed to open null vault %d for %s. This is weird.", number, player.getName()));
             return false;
@@ -281,11 +418,16 @@ public class VaultOperations {
         }
 
         final String holderKey = VaultManager.normalizeHolderKey(vaultOwner);
+        if (isUnderMaintenance(holderKey)) {
+            PlayerVaults.getInstance().getTL().locked().title().send(player);
+            return false;
+        }
         final VaultViewInfo info = new VaultViewInfo(holderKey, number);
         final VaultGate.VaultKey gateKey = new VaultGate.VaultKey(holderKey, number);
 
         long time = System.currentTimeMillis();
 
+        long start = VaultStats.start();
         Inventory inv = VaultGate.withLock(gateKey, () -> {
             Inventory cached = PlayerVaults.getInstance().getOpenInventories().get(info.toString());
             if (cached != null) {
@@ -297,6 +439,7 @@ public class VaultOperations {
             }
             return loaded;
         });
+        VaultStats.record(VaultStats.Timer.OPEN, start);
 
         // Resolve a nice display name if possible
         String displayName = holderKey;
@@ -364,6 +507,11 @@ public class VaultOperations {
             return;
         }
 
+        if (isUnderMaintenance(player.getUniqueId().toString())) {
+            PlayerVaults.getInstance().getTL().locked().title().send(player);
+            return;
+        }
+
         if (EconomyOperations.refundOnDelete(player, number)) {
             VaultManager.getInstance().deleteVault(player, player.getUniqueId().toString(), number);
             PlayerVaults.getInstance().getTL().deleteVault().title().with("vault", arg).send(player);
@@ -402,6 +550,11 @@ public class VaultOperations {
             return;
         }
 
+        if (isUnderMaintenance(VaultManager.normalizeHolderKey(holder))) {
+            PlayerVaults.getInstance().getTL().locked().title().send(sender);
+            return;
+        }
+
         VaultManager.getInstance().deleteVault(sender, holder, number);
         String display = holder;
         try {
@@ -426,6 +579,10 @@ public class VaultOperations {
         }
 
         if (sender.hasPermission(Permission.DELETE_ALL)) {
+            if (isUnderMaintenance(VaultManager.normalizeHolderKey(holder))) {
+                PlayerVaults.getInstance().getTL().locked().title().send(sender);
+                return;
+            }
             VaultManager.getInstance().deleteAllVaults(holder);
             PlayerVaults.getInstance().getLogger().info(String.format("%s deleted ALL vaults belonging to %s", sender.getName(), holder));
         } else {
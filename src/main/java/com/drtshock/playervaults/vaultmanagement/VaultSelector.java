@@ -0,0 +1,187 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import com.drtshock.playervaults.PlayerVaults;
+import com.drtshock.playervaults.config.file.Translation;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A paged inventory listing a player's own vaults, built only from their {@link VaultSummary summaries} so nothing is
+ * decoded until a vault is actually opened.
+ */
+public class VaultSelector implements InventoryHolder {
+    private static final int PAGE_SIZE = 45;
+    private static final int PREVIOUS_SLOT = 45;
+    private static final int NEXT_SLOT = 53;
+
+    private final int page;
+    private final int pages;
+    private final int[] numbers = new int[PAGE_SIZE];
+    private Inventory inventory;
+
+    private VaultSelector(int page, int pages) {
+        this.page = page;
+        this.pages = pages;
+    }
+
+    /**
+     * Opens the selector for a player. Summaries not yet in memory are loaded asynchronously first.
+     *
+     * @param player player
+     * @param page zero based page
+     */
+    public static void open(Player player, int page) {
+        String holderKey = player.getUniqueId().toString();
+        int maxVaults = VaultOperations.countVaults(player);
+        Map<Integer, VaultSummary> summaries = VaultManager.getInstance().getCachedSummaries(holderKey);
+        if (summaries == null) {
+            PlayerVaults.scheduler().runAsync(task -> {
+                Map<Integer, VaultSummary> loaded = VaultManager.getInstance().getSummaries(holderKey);
+                PlayerVaults.scheduler().runAtEntity(player, t -> show(player, page, maxVaults, loaded));
+            });
+        } else {
+            show(player, page, maxVaults, summaries);
+        }
+    }
+
+    private static void show(Player player, int page, int maxVaults, Map<Integer, VaultSummary> summaries) {
+        if (!player.isOnline()) {
+            return;
+        }
+        List<Integer> numbers = new ArrayList<>();
+        for (int number = 1; number <= maxVaults; number++) {
+            numbers.add(number);
+        }
+        // Vaults left over from a lost permission can still be seen, opening them is checked as usual
+        for (int number : summaries.keySet()) {
+            if (number > maxVaults) {
+                numbers.add(number);
+            }
+        }
+        if (numbers.isEmpty()) {
+            PlayerVaults.getInstance().getTL().noPerms().title().send(player);
+            return;
+        }
+        Collections.sort(numbers);
+
+        int pages = (numbers.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+        page = Math.max(0, Math.min(page, pages - 1));
+        Translation translation = PlayerVaults.getInstance().getTL();
+        VaultSelector selector = new VaultSelector(page, pages);
+        Inventory inventory = Bukkit.createInventory(selector, PAGE_SIZE + 9, translation.selectorTitle().with("page", String.valueOf(page + 1)).with("pages", String.valueOf(pages)).getLegacy());
+        selector.inventory = inventory;
+
+        for (int slot = 0; slot < PAGE_SIZE; slot++) {
+            int index = page * PAGE_SIZE + slot;
+            if (index >= numbers.size()) {
+                break;
+            }
+            int number = numbers.get(index);
+            selector.numbers[slot] = number;
+            inventory.setItem(slot, icon(translation, number, summaries.get(number)));
+        }
+        if (page > 0) {
+            inventory.setItem(PREVIOUS_SLOT, button(Material.ARROW, translation.selectorPreviousPage().getLegacy()));
+        }
+        if (page < pages - 1) {
+            inventory.setItem(NEXT_SLOT, button(Material.ARROW, translation.selectorNextPage().getLegacy()));
+        }
+        player.openInventory(inventory);
+    }
+
+    private static ItemStack icon(Translation translation, int number, VaultSummary summary) {
+        boolean empty = summary == null || summary.slotsUsed() == 0;
+        ItemStack icon = new ItemStack(empty || summary.preview().isEmpty() ? Material.CHEST : summary.preview().get(0));
+        ItemMeta meta = icon.getItemMeta();
+        if (meta == null) {
+            return icon;
+        }
+        meta.setDisplayName(translation.selectorVault().with("vault", String.valueOf(number)).getLegacy());
+        List<String> lore = new ArrayList<>();
+        if (empty) {
+            lore.addAll(Arrays.asList(translation.selectorEmpty().getLegacy().split("\n")));
+        } else {
+            lore.addAll(Arrays.asList(translation.selectorFill().with("used", String.valueOf(summary.slotsUsed())).with("size", String.valueOf(summary.size())).getLegacy().split("\n")));
+            for (Material material : summary.preview()) {
+                lore.addAll(Arrays.asList(translation.selectorPreview().with("item", prettyName(material)).getLegacy().split("\n")));
+            }
+        }
+        meta.setLore(lore);
+        icon.setItemMeta(meta);
+        return icon;
+    }
+
+    private static ItemStack button(Material material, String name) {
+        ItemStack button = new ItemStack(material);
+        ItemMeta meta = button.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(name);
+            button.setItemMeta(meta);
+        }
+        return button;
+    }
+
+    private static String prettyName(Material material) {
+        String[] words = material.name().toLowerCase(Locale.ROOT).split("_");
+        StringBuilder builder = new StringBuilder();
+        for (String word : words) {
+            builder.append(builder.isEmpty() ? "" : " ").append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Handles a click in this selector, opening the chosen vault or another page.
+     *
+     * @param player player who clicked
+     * @param rawSlot slot clicked
+     */
+    public void click(Player player, int rawSlot) {
+        if (rawSlot == PREVIOUS_SLOT && this.page > 0) {
+            open(player, this.page - 1);
+        } else if (rawSlot == NEXT_SLOT && this.page < this.pages - 1) {
+            open(player, this.page + 1);
+        } else if (rawSlot >= 0 && rawSlot < PAGE_SIZE && this.numbers[rawSlot] > 0) {
+            int number = this.numbers[rawSlot];
+            player.closeInventory();
+            if (VaultOperations.openOwnVault(player, String.valueOf(number), true)) {
+                PlayerVaults.getInstance().getInVault().put(player.getUniqueId().toString(), new VaultViewInfo(player.getUniqueId().toString(), number));
+            }
+        }
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return this.inventory;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * PlayerVaultsX
+ * Copyright (C) 2013 Trent Hensler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.drtshock.playervaults.vaultmanagement;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What is known about a stored vault without decoding its items. Kept up to date on every save and stored next to
+ * the vault in its holder's file, under {@code summary.vault<number>}.
+ *
+ * @param size number of slots stored
+ * @param slotsUsed slots holding an item
+ * @param items total amount of all items
+ * @param bytes size of the serialized contents
+ * @param lastOpened when the vault was last opened, in milliseconds since the epoch, 0 if unknown
+ * @param lastModified when the vault was last saved, in milliseconds since the epoch, 0 if unknown
+ * @param preview the most plentiful materials stored, most first, for showing what is inside without decoding it
+ */
+public record VaultSummary(int size, int slotsUsed, int items, int bytes, long lastOpened, long lastModified, List<Material> preview) {
+    public static final int PREVIEW_SIZE = 4;
+
+    /**
+     * Summarizes contents about to be saved.
+     *
+     * @param contents vault contents
+     * @param serialized serialized contents
+     * @param lastOpened when the vault was last opened
+     * @return summary, modified now
+     */
+    public static VaultSummary of(ItemStack[] contents, String serialized, long lastOpened) {
+        int slotsUsed = 0;
+        int items = 0;
+        Map<Material, Integer> amounts = new EnumMap<>(Material.class);
+        for (ItemStack item : contents) {
+            if (item != null && !item.getType().isAir()) {
+                slotsUsed++;
+                items += item.getAmount();
+                amounts.merge(item.getType(), item.getAmount(), Integer::sum);
+            }
+        }
+        List<Map.Entry<Material, Integer>> sorted = new ArrayList<>(amounts.entrySet());
+        sorted.sort(Map.Entry.<Material, Integer>comparingByValue().reversed());
+        List<Material> preview = new ArrayList<>(PREVIEW_SIZE);
+        for (int i = 0; i < sorted.size() && i < PREVIEW_SIZE; i++) {
+            preview.add(sorted.get(i).getKey());
+        }
+        return new VaultSummary(contents.length, slotsUsed, items, serialized == null ? 0 : serialized.length(), lastOpened, System.currentTimeMillis(), Collections.unmodifiableList(preview));
+    }
+
+    /**
+     * Reads a summary written by {@link #encode()}.
+     *
+     * @param encoded encoded summary
+     * @return summary, or null if it can't be read
+     */
+    public static VaultSummary decode(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        String[] parts = encoded.split(",", -1);
+        if (parts.length != 7) {
+            return null;
+        }
+        List<Material> preview = new ArrayList<>(PREVIEW_SIZE);
+        for (String name : parts[6].split(";")) {
+            Material material = name.isEmpty() ? null : Material.matchMaterial(name);
+            if (material != null) {
+                preview.add(material);
+            }
+        }
+        try {
+            return new VaultSummary(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                    Integer.parseInt(parts[3]), Long.parseLong(parts[4]), Long.parseLong(parts[5]), Collections.unmodifiableList(preview));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Encodes this summary compactly, for storing in a holder's file.
+     *
+     * @return encoded summary
+     */
+    public String encode() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(this.size).append(',').append(this.slotsUsed).append(',').append(this.items).append(',').append(this.bytes)
+                .append(',').append(this.lastOpened).append(',').append(this.lastModified).append(',');
+        for (int i = 0; i < this.preview.size(); i++) {
+            builder.append(i == 0 ? "" : ";").append(this.preview.get(i).name());
+        }
+        return builder.toString();
+    }
+
+    public int slotsFree() {
+        return Math.max(0, this.size - this.slotsUsed);
+    }
+
+    public VaultSummary withLastOpened(long lastOpened) {
+        return new VaultSummary(this.size, this.slotsUsed, this.items, this.bytes, lastOpened, this.lastModified, this.preview);
+    }
+}